@@ -3,9 +3,11 @@ package com.innowise.demo;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableCaching //включить кэширование
+@EnableScheduling //фоновая доставка outbox событий
 public class DemoApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,101 @@
+package com.innowise.demo.cache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Готовое JSON представление пользователя вместе с метаданными для проверки доступа и ETag.
+ *
+ * Запись кэша - один массив байт: версия формата, email, ETag, затем тело ответа
+ * в том виде, в каком его пишет Spring MVC. Метаданные читаются без разбора JSON,
+ * тело пишется в ответ как есть, без копирования (см. CachedUserJsonHttpMessageConverter).
+ */
+public final class CachedUserJson {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private final String email;
+    private final String etag;
+    private final byte[] data;
+    private final int offset;
+
+    private CachedUserJson(String email, String etag, byte[] data, int offset) {
+        this.email = email;
+        this.etag = etag;
+        this.data = data;
+        this.offset = offset;
+    }
+
+    /**
+     * @param etag ETag ответа или null, если у DTO нет версии
+     * @param json тело ответа
+     */
+    public static CachedUserJson of(String email, String etag, byte[] json) {
+        byte[] emailBytes = bytes(email);
+        byte[] etagBytes = bytes(etag);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Integer.BYTES + emailBytes.length
+                + Integer.BYTES + etagBytes.length + json.length);
+        buffer.put(FORMAT_VERSION)
+                .putInt(emailBytes.length).put(emailBytes)
+                .putInt(etagBytes.length).put(etagBytes)
+                .put(json);
+        return decode(buffer.array()).orElseThrow();
+    }
+
+    /**
+     * @return пусто, если запись в другом формате (например, записана другой версией сервиса)
+     */
+    static Optional<CachedUserJson> decode(byte[] value) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(value);
+            if (buffer.get() != FORMAT_VERSION) {
+                return Optional.empty();
+            }
+            String email = string(buffer);
+            String etag = string(buffer);
+            return Optional.of(new CachedUserJson(email, etag, value, buffer.position()));
+        } catch (RuntimeException ex) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Запись кэша целиком (метаданные и тело).
+     */
+    byte[] value() {
+        return data;
+    }
+
+    public String email() {
+        return email;
+    }
+
+    public Optional<String> etag() {
+        return Optional.ofNullable(etag);
+    }
+
+    public int length() {
+        return data.length - offset;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(data, offset, length());
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    private static String string(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
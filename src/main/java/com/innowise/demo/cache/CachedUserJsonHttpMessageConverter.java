@@ -0,0 +1,45 @@
+package com.innowise.demo.cache;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+/**
+ * Пишет в ответ готовое JSON тело из кэша (CachedUserJson) без повторной сериализации.
+ * Должен стоять перед Jackson конвертером (см. WebConfig).
+ */
+public class CachedUserJsonHttpMessageConverter extends AbstractHttpMessageConverter<CachedUserJson> {
+
+    public CachedUserJsonHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return CachedUserJson.class == clazz;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected CachedUserJson readInternal(Class<? extends CachedUserJson> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Cached JSON is write-only", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(CachedUserJson json, MediaType contentType) {
+        return (long) json.length();
+    }
+
+    @Override
+    protected void writeInternal(CachedUserJson json, HttpOutputMessage outputMessage) throws IOException {
+        json.writeTo(outputMessage.getBody());
+    }
+}
@@ -0,0 +1,134 @@
+package com.innowise.demo.cache;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Изменения кэшей, накопленные в одной транзакции (см. TransactionAwareCacheManager).
+ *
+ * Операции над одним ключом схлопываются: остается только последняя (put после evict - put,
+ * evict после put - evict), clear отменяет все предыдущие операции кэша. После фиксации
+ * для каждого кэша выполняется clear (если был), удаление ключей одной командой DEL,
+ * затем все записи во все кэши одним pipeline. При откате изменения отбрасываются.
+ */
+final class PendingCacheOperations implements TransactionSynchronization {
+
+    private static final Logger log = LoggerFactory.getLogger(PendingCacheOperations.class);
+
+    private final CacheManager targetCacheManager;
+    private final RedisBulkCache redisBulkCache;
+    private final Map<String, CacheChanges> changes = new LinkedHashMap<>();
+    // После начала afterCommit новые операции выполняются сразу: транзакция уже зафиксирована
+    private boolean committed;
+
+    private PendingCacheOperations(CacheManager targetCacheManager, RedisBulkCache redisBulkCache) {
+        this.targetCacheManager = targetCacheManager;
+        this.redisBulkCache = redisBulkCache;
+    }
+
+    /**
+     * Изменения текущей транзакции; null, если транзакции нет или она уже зафиксирована.
+     */
+    static PendingCacheOperations current(CacheManager targetCacheManager, RedisBulkCache redisBulkCache) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        PendingCacheOperations operations =
+                (PendingCacheOperations) TransactionSynchronizationManager.getResource(targetCacheManager);
+        if (operations == null) {
+            operations = new PendingCacheOperations(targetCacheManager, redisBulkCache);
+            TransactionSynchronizationManager.bindResource(targetCacheManager, operations);
+            TransactionSynchronizationManager.registerSynchronization(operations);
+        }
+        return operations.committed ? null : operations;
+    }
+
+    void put(String cacheName, Object key, Object value) {
+        CacheChanges cache = changes(cacheName);
+        cache.evictions.remove(key);
+        cache.puts.put(key, value);
+    }
+
+    void evict(String cacheName, Object key) {
+        CacheChanges cache = changes(cacheName);
+        cache.puts.remove(key);
+        cache.evictions.add(key);
+    }
+
+    void clear(String cacheName) {
+        CacheChanges cache = changes(cacheName);
+        cache.puts.clear();
+        cache.evictions.clear();
+        cache.cleared = true;
+    }
+
+    private CacheChanges changes(String cacheName) {
+        return changes.computeIfAbsent(cacheName, name -> new CacheChanges());
+    }
+
+    @Override
+    public void afterCommit() {
+        committed = true;
+        Map<String, Map<Object, Object>> puts = new LinkedHashMap<>();
+        changes.forEach((cacheName, cache) -> {
+            if (cache.cleared) {
+                clearTarget(cacheName);
+            }
+            redisBulkCache.evictAll(cacheName, cache.evictions);
+            Map<Object, Object> values = new LinkedHashMap<>();
+            cache.puts.forEach((key, value) -> {
+                if (value != null) {
+                    values.put(key, value);
+                } else {
+                    // null хранится самим RedisCache в своем формате (NullValue)
+                    putTarget(cacheName, key);
+                }
+            });
+            puts.put(cacheName, values);
+        });
+        redisBulkCache.putAll(puts);
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(targetCacheManager);
+    }
+
+    private void putTarget(String cacheName, Object key) {
+        try {
+            Cache target = targetCacheManager.getCache(cacheName);
+            if (target != null) {
+                target.put(key, null);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Writing null entry {} of cache '{}' after commit failed: {}", key, cacheName, ex.getMessage());
+        }
+    }
+
+    private void clearTarget(String cacheName) {
+        try {
+            Cache target = targetCacheManager.getCache(cacheName);
+            if (target != null) {
+                target.clear();
+            }
+        } catch (RuntimeException ex) {
+            // Данные уже зафиксированы: ошибка Redis не должна превращать запрос в ошибку
+            log.warn("Clearing cache '{}' after commit failed: {}", cacheName, ex.getMessage());
+        }
+    }
+
+    private static final class CacheChanges {
+        private final Map<Object, Object> puts = new LinkedHashMap<>();
+        private final Set<Object> evictions = new LinkedHashSet<>();
+        private boolean cleared;
+    }
+}
@@ -0,0 +1,57 @@
+package com.innowise.demo.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Неблокирующее чтение записей кэшей RedisCacheManager через реактивный клиент Lettuce.
+ *
+ * Ключи и значения декодируются так же, как в RedisCache (см. RedisBulkCache), поэтому читаются
+ * записи, созданные @Cacheable и write-through. Поток, запросивший чтение, не ждет ответа Redis.
+ * Ошибки Redis не пробрасываются: результат - промах, и данные читаются обычным путем.
+ */
+@Component
+public class ReactiveCacheReader {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveCacheReader.class);
+
+    private final RedisBulkCache redisBulkCache;
+    private final ReactiveRedisTemplate<byte[], byte[]> redisTemplate;
+
+    public ReactiveCacheReader(RedisBulkCache redisBulkCache, ReactiveRedisConnectionFactory connectionFactory) {
+        this.redisBulkCache = redisBulkCache;
+        this.redisTemplate = new ReactiveRedisTemplate<>(connectionFactory, RedisSerializationContext.byteArray());
+    }
+
+    /**
+     * @return значение записи; пусто при промахе, записи null или записи другого типа
+     */
+    public <T> Mono<T> get(String cacheName, Object key, Class<T> type) {
+        RedisCacheConfiguration config = redisBulkCache.configuration(cacheName);
+        return read(cacheName, key)
+                .mapNotNull(raw -> redisBulkCache.readValue(config, cacheName, key, raw, type));
+    }
+
+    /**
+     * Готовый JSON пользователя из users_json (ключи - UserJsonCache.idKey/emailKey).
+     */
+    public Mono<CachedUserJson> getUserJson(String key) {
+        return read(UserJsonCache.CACHE_NAME, key)
+                .mapNotNull(raw -> CachedUserJson.decode(raw).orElse(null));
+    }
+
+    private Mono<byte[]> read(String cacheName, Object key) {
+        return redisTemplate.opsForValue().get(redisBulkCache.rawKey(cacheName, key))
+                .onErrorResume(ex -> {
+                    log.warn("Reactive read from cache '{}' failed: {}", cacheName, ex.getMessage());
+                    return Mono.empty();
+                });
+    }
+}
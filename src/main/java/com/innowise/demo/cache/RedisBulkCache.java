@@ -0,0 +1,198 @@
+package com.innowise.demo.cache;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.data.redis.util.ByteUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * Многоключевые операции над кэшами RedisCacheManager.
+ *
+ * RedisCache выполняет одну команду на каждый get/put/evict, поэтому чтение N записей - это N обращений
+ * к Redis. Здесь те же записи читаются одной командой MGET, записываются одним pipeline
+ * (в том числе в несколько кэшей сразу) и удаляются одной командой DEL.
+ * Ключи и значения кодируются так же, как в RedisCache (префикс "имя::", сериализаторы
+ * и TTL из конфигурации кэша), поэтому записи совместимы с @Cacheable/@CachePut.
+ *
+ * Ошибки Redis не пробрасываются: чтение возвращает промахи, запись пропускается,
+ * данные в этом случае читаются из БД.
+ */
+@Component
+public class RedisBulkCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisBulkCache.class);
+
+    // Так RedisCache хранит null (allowCacheNullValues): такие записи считаются промахом
+    private static final byte[] BINARY_NULL_VALUE = RedisSerializer.java().serialize(NullValue.INSTANCE);
+
+    private final RedisCacheManager cacheManager;
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    public RedisBulkCache(RedisCacheManager cacheManager, RedisTemplate<String, Object> redisTemplate) {
+        this.cacheManager = cacheManager;
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Читает записи кэша одной командой MGET.
+     *
+     * @return найденные значения в порядке keys; промахи в результат не попадают
+     */
+    public <K, V> Map<K, V> getAll(String cacheName, Collection<K> keys, Class<V> type) {
+        Map<K, V> found = new LinkedHashMap<>();
+        if (keys.isEmpty()) {
+            return found;
+        }
+        RedisCacheConfiguration config = configuration(cacheName);
+        List<K> keyList = new ArrayList<>(keys);
+        byte[][] rawKeys = keyList.stream().map(key -> rawKey(config, cacheName, key)).toArray(byte[][]::new);
+
+        List<byte[]> rawValues;
+        try {
+            rawValues = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                    connection.stringCommands().mGet(rawKeys));
+        } catch (RuntimeException ex) {
+            log.warn("Bulk read from cache '{}' failed: {}", cacheName, ex.getMessage());
+            return found;
+        }
+        if (rawValues == null) {
+            return found;
+        }
+
+        for (int i = 0; i < rawValues.size(); i++) {
+            V value = readValue(config, cacheName, keyList.get(i), rawValues.get(i), type);
+            if (value != null) {
+                found.put(keyList.get(i), value);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Записывает значения в кэш одним pipeline (SET с TTL кэша для каждой записи).
+     */
+    public <K> void putAll(String cacheName, Map<K, ?> entries) {
+        putAll(Map.of(cacheName, entries));
+    }
+
+    /**
+     * Записывает значения в несколько кэшей одним pipeline: например, пользователя
+     * одновременно в users (по id) и users_by_email (по email) за одно обращение к Redis.
+     * MSET не поддерживает TTL, поэтому в pipeline отправляются отдельные SET с EX.
+     *
+     * @param entriesByCache имя кэша -> записи этого кэша
+     */
+    public void putAll(Map<String, ? extends Map<?, ?>> entriesByCache) {
+        Map<String, RedisCacheConfiguration> configs = new LinkedHashMap<>();
+        entriesByCache.forEach((cacheName, entries) -> {
+            if (!entries.isEmpty()) {
+                configs.put(cacheName, configuration(cacheName));
+            }
+        });
+        if (configs.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                RedisStringCommands commands = connection.stringCommands();
+                configs.forEach((cacheName, config) -> entriesByCache.get(cacheName).forEach((key, value) -> {
+                    Duration ttl = config.getTtlFunction().getTimeToLive(key, value);
+                    Expiration expiration = ttl.isZero() || ttl.isNegative()
+                            ? Expiration.persistent()
+                            : Expiration.from(ttl);
+                    commands.set(rawKey(config, cacheName, key), rawValue(config, value),
+                            expiration, RedisStringCommands.SetOption.upsert());
+                }));
+                return null;
+            });
+        } catch (RuntimeException ex) {
+            log.warn("Bulk write to caches {} failed: {}", configs.keySet(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Удаляет записи кэша одной командой DEL с несколькими ключами.
+     */
+    public void evictAll(String cacheName, Collection<?> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        RedisCacheConfiguration config = configuration(cacheName);
+        byte[][] rawKeys = keys.stream().map(key -> rawKey(config, cacheName, key)).toArray(byte[][]::new);
+        try {
+            redisTemplate.execute((RedisCallback<Long>) connection -> connection.keyCommands().del(rawKeys));
+        } catch (RuntimeException ex) {
+            log.warn("Bulk eviction from cache '{}' failed: {}", cacheName, ex.getMessage());
+        }
+    }
+
+    /**
+     * Ключ записи в формате RedisCache (для чтения той же записи другим клиентом Redis).
+     */
+    byte[] rawKey(String cacheName, Object key) {
+        return rawKey(configuration(cacheName), cacheName, key);
+    }
+
+    /**
+     * Значение записи кэша из байт Redis.
+     *
+     * @return null для промаха, записи null и записи другого типа или формата
+     */
+    <V> V readValue(RedisCacheConfiguration config, String cacheName, Object key, byte[] raw, Class<V> type) {
+        if (raw == null || Arrays.equals(raw, BINARY_NULL_VALUE)) {
+            return null;
+        }
+        try {
+            Object value = config.getValueSerializationPair().read(ByteBuffer.wrap(raw));
+            return type.isInstance(value) ? type.cast(value) : null;
+        } catch (SerializationException ex) {
+            // Запись в старом формате: считается промахом и будет перезаписана
+            log.debug("Cannot deserialize cache entry {} of '{}': {}", key, cacheName, ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Конфигурация кэша (префикс, сериализаторы, TTL) берется у созданного менеджером RedisCache.
+     */
+    RedisCacheConfiguration configuration(String cacheName) {
+        if (cacheManager.getCache(cacheName) instanceof RedisCache cache) {
+            return cache.getCacheConfiguration();
+        }
+        throw new IllegalArgumentException("Unknown Redis cache: " + cacheName);
+    }
+
+    /**
+     * Ключ в формате RedisCache: префикс кэша + ключ, преобразованный ConversionService кэша.
+     */
+    private static byte[] rawKey(RedisCacheConfiguration config, String cacheName, Object key) {
+        String stringKey = key instanceof String value
+                ? value
+                : config.getConversionService().convert(key, String.class);
+        String prefixed = config.usePrefix() ? config.getKeyPrefixFor(cacheName) + stringKey : stringKey;
+        return ByteUtils.getBytes(config.getKeySerializationPair().write(prefixed));
+    }
+
+    private static byte[] rawValue(RedisCacheConfiguration config, Object value) {
+        return ByteUtils.getBytes(config.getValueSerializationPair().write(value));
+    }
+}
@@ -0,0 +1,141 @@
+package com.innowise.demo.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+/**
+ * CacheManager, откладывающий изменения кэшей до фиксации транзакции.
+ *
+ * put, evict и clear, вызванные в транзакции (аннотациями @CachePut/@CacheEvict/@Cacheable
+ * или из кода), не выполняются сразу, а накапливаются в PendingCacheOperations: после фиксации
+ * они применяются одним набором команд Redis, при откате отбрасываются. Так в кэш не попадают
+ * данные, которые не были зафиксированы в БД. Вне транзакции операции выполняются сразу.
+ *
+ * Чтение выполняется из кэша напрямую: изменения, отложенные в текущей транзакции, при чтении не видны.
+ * putIfAbsent и invalidate выполняются сразу - их вызывающему коду нужен немедленный результат.
+ */
+public class TransactionAwareCacheManager implements CacheManager {
+
+    private final CacheManager targetCacheManager;
+    private final RedisBulkCache redisBulkCache;
+    private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+
+    public TransactionAwareCacheManager(CacheManager targetCacheManager, RedisBulkCache redisBulkCache) {
+        this.targetCacheManager = targetCacheManager;
+        this.redisBulkCache = redisBulkCache;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache target = targetCacheManager.getCache(name);
+        if (target == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, key -> new TransactionAwareCache(target));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return targetCacheManager.getCacheNames();
+    }
+
+    /**
+     * Изменения текущей транзакции; null - операцию нужно выполнить сразу.
+     */
+    private PendingCacheOperations pendingOperations() {
+        return PendingCacheOperations.current(targetCacheManager, redisBulkCache);
+    }
+
+    private final class TransactionAwareCache implements Cache {
+
+        private final Cache target;
+
+        private TransactionAwareCache(Cache target) {
+            this.target = target;
+        }
+
+        @Override
+        public String getName() {
+            return target.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return target.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            return target.get(key);
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            return target.get(key, type);
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            return target.get(key, valueLoader);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            PendingCacheOperations pending = pendingOperations();
+            if (pending != null) {
+                pending.put(getName(), key, value);
+            } else {
+                target.put(key, value);
+            }
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            return target.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void evict(Object key) {
+            PendingCacheOperations pending = pendingOperations();
+            if (pending != null) {
+                pending.evict(getName(), key);
+            } else {
+                target.evict(key);
+            }
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            PendingCacheOperations pending = pendingOperations();
+            if (pending != null) {
+                pending.evict(getName(), key);
+                return false;
+            }
+            return target.evictIfPresent(key);
+        }
+
+        @Override
+        public void clear() {
+            PendingCacheOperations pending = pendingOperations();
+            if (pending != null) {
+                pending.clear(getName());
+            } else {
+                target.clear();
+            }
+        }
+
+        @Override
+        public boolean invalidate() {
+            return target.invalidate();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.innowise.demo.cache;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Запись в кэш после фиксации транзакции.
+ *
+ * В транзакции операции передаются в TransactionAwareCacheManager: они схлопываются вместе
+ * с операциями аннотаций @CachePut/@CacheEvict той же транзакции, применяются после фиксации
+ * и отбрасываются при откате. Вне транзакции записи в несколько кэшей отправляются сразу
+ * одним pipeline (RedisBulkCache).
+ */
+@Component
+public class TransactionalCacheWriter {
+
+    private final RedisBulkCache redisBulkCache;
+    private final CacheManager cacheManager;
+
+    public TransactionalCacheWriter(RedisBulkCache redisBulkCache, CacheManager cacheManager) {
+        this.redisBulkCache = redisBulkCache;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * @param entriesByCache имя кэша -> записи этого кэша
+     */
+    public void putAfterCommit(Map<String, ? extends Map<?, ?>> entriesByCache) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            redisBulkCache.putAll(entriesByCache);
+            return;
+        }
+        entriesByCache.forEach((cacheName, entries) -> {
+            Cache cache = cacheManager.getCache(cacheName);
+            entries.forEach(cache::put);
+        });
+    }
+
+    public void evictAfterCommit(String cacheName, Collection<?> keys) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            redisBulkCache.evictAll(cacheName, keys);
+            return;
+        }
+        Cache cache = cacheManager.getCache(cacheName);
+        keys.forEach(cache::evict);
+    }
+
+    public void clearAfterCommit(String cacheName) {
+        cacheManager.getCache(cacheName).clear();
+    }
+}
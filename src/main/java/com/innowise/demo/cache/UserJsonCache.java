@@ -0,0 +1,93 @@
+package com.innowise.demo.cache;
+
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innowise.demo.dto.UserDto;
+import com.innowise.demo.util.EntityTag;
+
+/**
+ * Кэш готовых JSON ответов с полным представлением пользователя (с картами).
+ *
+ * В кэше users значение хранится как UserDto: при попадании оно десериализуется из JSON Redis,
+ * а затем снова сериализуется в JSON ответа. Здесь хранится само тело ответа (сериализованное
+ * ObjectMapper'ом Spring MVC) и метаданные для проверки доступа и ETag, поэтому при попадании
+ * байты пишутся в ответ как есть. Ключи: "id_" + id и "email_" + email.
+ *
+ * Кэш заполняется при чтении; при изменении пользователя или его карт записи удаляются
+ * вместе с записями users и users_by_email (UserService, CardInfoService).
+ */
+@Component
+public class UserJsonCache {
+
+    public static final String CACHE_NAME = "users_json";
+
+    private static final Logger log = LoggerFactory.getLogger(UserJsonCache.class);
+
+    private final CacheManager cacheManager;
+    private final RedisBulkCache redisBulkCache;
+    private final ObjectMapper objectMapper;
+
+    public UserJsonCache(CacheManager cacheManager, RedisBulkCache redisBulkCache, ObjectMapper objectMapper) {
+        this.cacheManager = cacheManager;
+        this.redisBulkCache = redisBulkCache;
+        this.objectMapper = objectMapper;
+    }
+
+    public Optional<CachedUserJson> findById(Long id) {
+        return find(idKey(id));
+    }
+
+    public Optional<CachedUserJson> findByEmail(String email) {
+        return find(emailKey(email));
+    }
+
+    /**
+     * Сериализует пользователя и сохраняет JSON по id и email одним pipeline.
+     *
+     * @return тело ответа; пусто, если пользователь не сериализуется (тогда ответ строится из DTO)
+     */
+    public Optional<CachedUserJson> put(UserDto user) {
+        if (user.getId() == null) {
+            return Optional.empty();
+        }
+        CachedUserJson json;
+        try {
+            json = CachedUserJson.of(user.getEmail(), EntityTag.of(user).orElse(null),
+                    objectMapper.writeValueAsBytes(user));
+        } catch (JsonProcessingException ex) {
+            log.warn("Cannot serialize user {} for response cache: {}", user.getId(), ex.getMessage());
+            return Optional.empty();
+        }
+        Map<String, byte[]> entries = user.getEmail() != null
+                ? Map.of(idKey(user.getId()), json.value(), emailKey(user.getEmail()), json.value())
+                : Map.of(idKey(user.getId()), json.value());
+        redisBulkCache.putAll(CACHE_NAME, entries);
+        return Optional.of(json);
+    }
+
+    public static String idKey(Long id) {
+        return "id_" + id;
+    }
+
+    public static String emailKey(String email) {
+        return "email_" + email;
+    }
+
+    private Optional<CachedUserJson> find(String key) {
+        byte[] value = cache().get(key, byte[].class);
+        return value != null ? CachedUserJson.decode(value) : Optional.empty();
+    }
+
+    private Cache cache() {
+        return cacheManager.getCache(CACHE_NAME);
+    }
+}
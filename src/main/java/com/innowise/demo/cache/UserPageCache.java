@@ -0,0 +1,63 @@
+package com.innowise.demo.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import com.innowise.demo.dto.PagedUserResponse;
+import com.innowise.demo.dto.UserDto;
+import com.innowise.demo.dto.UserIdPage;
+
+/**
+ * Кэш страниц списка пользователей в виде списков id.
+ *
+ * По умолчанию страница кэшируется целиком (PagedUserResponse в users_all), и данные каждого
+ * пользователя повторяются во всех страницах, где он встречается. При
+ * cache.users.page-ids.enabled=true в кэше users_page_ids хранятся только id пользователей
+ * страницы, а сами пользователи читаются из кэша users одной командой MGET (см. UserService.findAllUsers).
+ */
+@Component
+public class UserPageCache {
+
+    public static final String CACHE_NAME = "users_page_ids";
+
+    private final CacheManager cacheManager;
+    private final boolean enabled;
+
+    public UserPageCache(CacheManager cacheManager,
+                         @Value("${cache.users.page-ids.enabled:false}") boolean enabled) {
+        this.cacheManager = cacheManager;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Optional<UserIdPage> get(int page, int size) {
+        return Optional.ofNullable(cache().get(key(page, size), UserIdPage.class));
+    }
+
+    public void put(PagedUserResponse response) {
+        // ArrayList: список десериализуется из Redis по сохраненному типу
+        List<Long> ids = new ArrayList<>(response.getContent().size());
+        for (UserDto user : response.getContent()) {
+            ids.add(user.getId());
+        }
+        cache().put(key(response.getPage(), response.getSize()), new UserIdPage(ids, response.getPage(),
+                response.getSize(), response.getTotalElements(), response.getTotalPages()));
+    }
+
+    private Cache cache() {
+        return cacheManager.getCache(CACHE_NAME);
+    }
+
+    private static String key(int page, int size) {
+        return "page_" + page + "_size_" + size;
+    }
+}
@@ -0,0 +1,190 @@
+package com.innowise.demo.client;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.innowise.demo.client.dto.UpdateUserProfileRequest;
+import com.innowise.demo.client.dto.UserSyncBatchRequest;
+
+/**
+ * Пакетная синхронизация пользователей с authentication-service.
+ *
+ * Удаления и обновления профилей накапливаются и отправляются одним запросом
+ * ({@link AuthServiceClient#syncUsers}), когда набирается max-size операций или истекает window
+ * с момента первой операции пакета. Результат каждой операции - CompletableFuture, который
+ * завершается вместе с пакетом (ошибка запроса завершает с ошибкой все операции пакета).
+ * Пакеты отправляются последовательно одним фоновым потоком.
+ *
+ * Пакетная отправка включается authentication.service.batch.enabled=true (по умолчанию выключена:
+ * пакетный endpoint есть не во всех версиях authentication-service), иначе операции отправляются по одной.
+ */
+@Component
+public class AuthServiceBatchingClient implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthServiceBatchingClient.class);
+
+    private final AuthServiceClient authServiceClient;
+    private final int maxBatchSize;
+    private final Duration window;
+    private final boolean bulkEnabled;
+    private final ScheduledExecutorService sender;
+
+    // ReentrantLock вместо synchronized: не закрепляет виртуальный поток за носителем
+    private final ReentrantLock lock = new ReentrantLock();
+    private List<PendingOperation> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    public AuthServiceBatchingClient(AuthServiceClient authServiceClient,
+                                     @Value("${authentication.service.batch.max-size:100}") int maxBatchSize,
+                                     @Value("${authentication.service.batch.window:50ms}") Duration window,
+                                     @Value("${authentication.service.batch.enabled:false}") boolean bulkEnabled) {
+        this.authServiceClient = authServiceClient;
+        this.maxBatchSize = maxBatchSize;
+        this.window = window;
+        this.bulkEnabled = bulkEnabled;
+        this.sender = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auth-sync-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public CompletableFuture<Void> deleteUser(String email) {
+        return submit(new PendingOperation(email, null, new CompletableFuture<>()));
+    }
+
+    public CompletableFuture<Void> updateUserProfile(UpdateUserProfileRequest request) {
+        return submit(new PendingOperation(null, request, new CompletableFuture<>()));
+    }
+
+    /**
+     * Отправляет накопленные операции, не дожидаясь окончания window
+     * (вызывающий код знает, что пакет сформирован полностью).
+     */
+    public void flush() {
+        List<PendingOperation> batch;
+        lock.lock();
+        try {
+            batch = drain();
+        } finally {
+            lock.unlock();
+        }
+        dispatch(batch);
+    }
+
+    private CompletableFuture<Void> submit(PendingOperation operation) {
+        List<PendingOperation> fullBatch = null;
+        lock.lock();
+        try {
+            pending.add(operation);
+            if (pending.size() >= maxBatchSize) {
+                fullBatch = drain();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = sender.schedule(this::flush, window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+        dispatch(fullBatch);
+        return operation.result();
+    }
+
+    /**
+     * Забирает текущий пакет. Вызывается под lock.
+     */
+    private List<PendingOperation> drain() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (pending.isEmpty()) {
+            return List.of();
+        }
+        List<PendingOperation> batch = pending;
+        pending = new ArrayList<>();
+        return batch;
+    }
+
+    private void dispatch(List<PendingOperation> batch) {
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        try {
+            sender.execute(() -> send(batch));
+        } catch (RuntimeException ex) {
+            // Executor остановлен (завершение приложения)
+            batch.forEach(operation -> operation.result().completeExceptionally(ex));
+        }
+    }
+
+    private void send(List<PendingOperation> batch) {
+        if (!bulkEnabled) {
+            batch.forEach(this::sendSingle);
+            return;
+        }
+
+        List<String> deletedEmails = new ArrayList<>();
+        List<UpdateUserProfileRequest> profileUpdates = new ArrayList<>();
+        for (PendingOperation operation : batch) {
+            if (operation.deletedEmail() != null) {
+                deletedEmails.add(operation.deletedEmail());
+            } else {
+                profileUpdates.add(operation.profileUpdate());
+            }
+        }
+
+        try {
+            authServiceClient.syncUsers(new UserSyncBatchRequest(deletedEmails, profileUpdates));
+            batch.forEach(operation -> operation.result().complete(null));
+        } catch (RuntimeException ex) {
+            log.warn("User synchronization batch of {} operations failed: {}", batch.size(), ex.getMessage());
+            batch.forEach(operation -> operation.result().completeExceptionally(ex));
+        }
+    }
+
+    private void sendSingle(PendingOperation operation) {
+        try {
+            if (operation.deletedEmail() != null) {
+                authServiceClient.deleteUser(operation.deletedEmail());
+            } else {
+                authServiceClient.updateUserProfile(operation.profileUpdate());
+            }
+            operation.result().complete(null);
+        } catch (RuntimeException ex) {
+            operation.result().completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * Отправляет оставшиеся операции при остановке приложения.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        flush();
+        sender.shutdown();
+        if (!sender.awaitTermination(10, TimeUnit.SECONDS)) {
+            sender.shutdownNow();
+        }
+    }
+
+    /**
+     * Операция пакета: удаление (deletedEmail) или обновление профиля (profileUpdate).
+     */
+    private record PendingOperation(String deletedEmail,
+                                    UpdateUserProfileRequest profileUpdate,
+                                    CompletableFuture<Void> result) {
+    }
+}
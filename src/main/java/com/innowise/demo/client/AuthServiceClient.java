@@ -1,6 +1,14 @@
 package com.innowise.demo.client;
 
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,30 +19,75 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 import com.innowise.demo.client.dto.TokenValidationRequest;
 import com.innowise.demo.client.dto.TokenValidationResponse;
 import com.innowise.demo.client.dto.UpdateUserProfileRequest;
+import com.innowise.demo.client.dto.UserSyncBatchRequest;
+import com.innowise.demo.util.TokenHash;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.nimbusds.jwt.JWTParser;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
 @Component
-public class AuthServiceClient {
+public class AuthServiceClient implements MeterBinder {
 
     private static final Logger log = LoggerFactory.getLogger(AuthServiceClient.class);
     private static final String BEARER_PREFIX = "Bearer ";
     private static final String INTERNAL_API_KEY_HEADER = "X-Internal-Api-Key";
 
+    static final String VALIDATION_CACHE_NAME = "auth_token_validation";
+
     private final RestTemplate restTemplate;
     private final String baseUrl;
     private final String internalApiKey;
+    private final Duration validationMaxTtl;
+    private final Duration negativeTtl;
+    private final AsyncCache<Long, CachedValidation> validationCache;
+    private final Isolation validateIsolation;
+    private final Isolation deleteUserIsolation;
+    private final Isolation updateProfileIsolation;
+    private final Isolation syncBatchIsolation;
+    private volatile Timer remoteValidationTimer;
 
     public AuthServiceClient(RestTemplate restTemplate,
+                             CircuitBreakerRegistry circuitBreakerRegistry,
+                             BulkheadRegistry bulkheadRegistry,
                              @Value("${authentication.service.base-url:http://authentication-service:8081}") String baseUrl,
-                             @Value("${authentication.service.internal-api-key:}") String internalApiKey) {
+                             @Value("${authentication.service.internal-api-key:}") String internalApiKey,
+                             @Value("${authentication.service.validation-cache.max-size:10000}") long validationCacheMaxSize,
+                             @Value("${authentication.service.validation-cache.max-ttl:5m}") Duration validationMaxTtl,
+                             @Value("${authentication.service.validation-cache.negative-ttl:10s}") Duration negativeTtl) {
         this.restTemplate = restTemplate;
         this.baseUrl = baseUrl;
         this.internalApiKey = internalApiKey;
+        this.validationMaxTtl = validationMaxTtl;
+        this.negativeTtl = negativeTtl;
+        this.validationCache = Caffeine.newBuilder()
+                .maximumSize(validationCacheMaxSize)
+                .expireAfter(new ValidationExpiry())
+                .recordStats()
+                .buildAsync();
+        this.validateIsolation = Isolation.of(circuitBreakerRegistry, bulkheadRegistry, "auth-validate");
+        this.deleteUserIsolation = Isolation.of(circuitBreakerRegistry, bulkheadRegistry, "auth-delete-user");
+        this.updateProfileIsolation = Isolation.of(circuitBreakerRegistry, bulkheadRegistry, "auth-update-profile");
+        this.syncBatchIsolation = Isolation.of(circuitBreakerRegistry, bulkheadRegistry, "auth-sync-batch");
     }
 
     public Optional<TokenValidationResponse> validateAuthorizationHeader(String authHeader) {
@@ -45,7 +98,61 @@ public class AuthServiceClient {
         return validateToken(token);
     }
 
+    /**
+     * Проверка токена в authentication-service с кэшированием результата.
+     *
+     * Ключ кэша - 64-битный хэш токена ({@link TokenHash}); при попадании исходный токен сверяется,
+     * поэтому коллизия хэша приводит лишь к вызову authentication-service без кэша.
+     * Успешный результат живет не дольше validation-cache.max-ttl и claim "exp" токена,
+     * отрицательный (токен отклонен) - validation-cache.negative-ttl.
+     * Ошибки связи не кэшируются. Одновременные проверки одного токена объединяются в один вызов.
+     * При разомкнутом circuit breaker или заполненном bulkhead сразу возвращается Optional.empty().
+     */
     public Optional<TokenValidationResponse> validateToken(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+
+        CompletableFuture<CachedValidation> created = new CompletableFuture<>();
+        CompletableFuture<CachedValidation> future = validationCache.get(TokenHash.of(token), (key, executor) -> created);
+        if (future == created) {
+            try {
+                created.complete(validateRemotely(token));
+            } catch (Throwable ex) {
+                // Неудачный future удаляется из кэша, следующий вызов повторит проверку.
+                // Future завершается при любой ошибке, иначе ожидающие потоки зависнут
+                created.completeExceptionally(ex);
+            }
+        }
+
+        CachedValidation validation;
+        try {
+            validation = future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof Error error) {
+                throw error;
+            }
+            log.warn("Failed to validate token via authentication-service: {}", ex.getCause().getMessage());
+            return Optional.empty();
+        }
+
+        if (!token.equals(validation.token())) {
+            // Коллизия хэша: проверяем без кэша
+            try {
+                return Optional.ofNullable(validateRemotely(token).response());
+            } catch (RuntimeException ex) {
+                log.warn("Failed to validate token via authentication-service: {}", ex.getMessage());
+                return Optional.empty();
+            }
+        }
+        return Optional.ofNullable(validation.response());
+    }
+
+    /**
+     * Вызов /auth/validate. 4xx означает, что токен отклонен (результат кэшируется как отрицательный),
+     * остальные ошибки пробрасываются и не кэшируются.
+     */
+    private CachedValidation validateRemotely(String token) {
         TokenValidationRequest request = new TokenValidationRequest(token);
 
         HttpHeaders headers = new HttpHeaders();
@@ -53,14 +160,56 @@ public class AuthServiceClient {
 
         HttpEntity<TokenValidationRequest> entity = new HttpEntity<>(request, headers);
 
+        TokenValidationResponse body;
+        long start = System.nanoTime();
         try {
-            ResponseEntity<TokenValidationResponse> response =
-                    restTemplate.postForEntity(baseUrl + "/auth/validate", entity, TokenValidationResponse.class);
-            return Optional.ofNullable(response.getBody());
-        } catch (RestClientException ex) {
-            log.warn("Failed to validate token via authentication-service: {}", ex.getMessage());
-            return Optional.empty();
+            ResponseEntity<TokenValidationResponse> response = validateIsolation.call(() ->
+                    restTemplate.postForEntity(baseUrl + "/auth/validate", entity, TokenValidationResponse.class));
+            body = response.getBody();
+        } catch (HttpClientErrorException ex) {
+            log.debug("Token rejected by authentication-service: {}", ex.getStatusCode());
+            body = null;
+        } finally {
+            Timer timer = remoteValidationTimer;
+            if (timer != null) {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        if (body == null || !body.valid()) {
+            return new CachedValidation(token, body, Instant.now().plus(negativeTtl));
+        }
+        Instant expiresAt = Instant.now().plus(validationMaxTtl);
+        Instant tokenExpiresAt = readExpiration(token);
+        if (tokenExpiresAt != null && tokenExpiresAt.isBefore(expiresAt)) {
+            expiresAt = tokenExpiresAt;
         }
+        return new CachedValidation(token, body, expiresAt);
+    }
+
+    /**
+     * Claim "exp" без проверки подписи: используется только для ограничения времени жизни
+     * записи кэша (не дольше max-ttl), решение о валидности принимает authentication-service.
+     */
+    private static Instant readExpiration(String token) {
+        try {
+            Date exp = JWTParser.parse(token).getJWTClaimsSet().getExpirationTime();
+            return exp != null ? exp.toInstant() : null;
+        } catch (ParseException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Публикует метрики кэша проверки токенов (cache.gets с тегом result=hit/miss, cache.size)
+     * и таймер вызовов /auth/validate.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, validationCache, VALIDATION_CACHE_NAME);
+        remoteValidationTimer = Timer.builder("auth.service.validate")
+                .description("Remote token validation calls to authentication-service")
+                .register(registry);
     }
 
     @SuppressWarnings("null")
@@ -74,7 +223,11 @@ public class AuthServiceClient {
         HttpEntity<UpdateUserProfileRequest> entity = new HttpEntity<>(request, headers);
 
         try {
-            restTemplate.exchange(baseUrl + "/auth/users/profile", HttpMethod.PUT, entity, Void.class);
+            updateProfileIsolation.call(() ->
+                    restTemplate.exchange(baseUrl + "/auth/users/profile", HttpMethod.PUT, entity, Void.class));
+        } catch (CallNotPermittedException | BulkheadFullException ex) {
+            log.warn("Authentication-service profile update rejected without a call: {}", ex.getMessage());
+            throw new IllegalStateException("Failed to synchronize authentication profile", ex);
         } catch (RestClientException ex) {
             log.error("Failed to update user profile in authentication-service: {}", ex.getMessage());
             throw new IllegalStateException("Failed to synchronize authentication profile", ex);
@@ -82,13 +235,15 @@ public class AuthServiceClient {
     }
 
     /**
-     * Удаление пользователя по email из authentication-service (auth_db и Keycloak)
+     * Удаление пользователя по email из authentication-service (auth_db и Keycloak).
+     * Вызывается диспетчером outbox: ошибка доставки пробрасывается, чтобы событие было повторено.
+     * 404 считается успехом - пользователя уже нет (повторная доставка того же события).
+     *
+     * @throws IllegalStateException если authentication-service недоступен или вернул ошибку
+     * @throws CallNotPermittedException если circuit breaker разомкнут (вызов не выполнялся)
+     * @throws BulkheadFullException если превышен лимит одновременных вызовов (вызов не выполнялся)
      */
     public void deleteUser(String email) {
-        log.info("Attempting to delete user {} from authentication-service", email);
-        log.info("AuthServiceClient configuration - baseUrl: {}, internalApiKey configured: {}", 
-                baseUrl, internalApiKey != null && !internalApiKey.isBlank());
-        
         if (baseUrl == null || baseUrl.isBlank()) {
             log.warn("Authentication service URL not configured. Skipping user deletion in authentication-service.");
             return;
@@ -99,40 +254,117 @@ public class AuthServiceClient {
         HttpHeaders headers = new HttpHeaders();
         if (internalApiKey != null && !internalApiKey.isBlank()) {
             headers.set(INTERNAL_API_KEY_HEADER, internalApiKey);
-            log.info("Using internal API key for authentication-service request (key length: {})", internalApiKey.length());
-        } else {
-            log.warn("Internal API key not configured. Request will be sent without API key.");
         }
 
         HttpEntity<Void> entity = new HttpEntity<>(headers);
 
+        // Используем UriComponentsBuilder для правильного кодирования URL
+        // RestTemplate автоматически кодирует URL, поэтому не нужно кодировать вручную
+        String url = org.springframework.web.util.UriComponentsBuilder
+                .fromUriString(baseUrl)
+                .path("/auth/v1/internal/sync/users/{email}")
+                .buildAndExpand(email)
+                .toUriString();
+
         try {
-            // Используем UriComponentsBuilder для правильного кодирования URL
-            // RestTemplate автоматически кодирует URL, поэтому не нужно кодировать вручную
-            String url = org.springframework.web.util.UriComponentsBuilder
-                    .fromUriString(baseUrl)
-                    .path("/auth/v1/internal/sync/users/{email}")
-                    .buildAndExpand(email)
-                    .toUriString();
-            log.info("Calling DELETE {} for user {}", url, email);
-            
-            ResponseEntity<Void> response = restTemplate.exchange(url, HttpMethod.DELETE, entity, Void.class);
-            
-            if (response.getStatusCode().is2xxSuccessful()) {
-                log.info("Successfully deleted user {} from authentication-service. Response status: {}", email, response.getStatusCode());
-            } else {
-                log.warn("Unexpected response status {} when deleting user {} from authentication-service", response.getStatusCode(), email);
-            }
-        } catch (org.springframework.web.client.HttpClientErrorException ex) {
-            log.error("HTTP error when deleting user {} from authentication-service. Status: {}, Response: {}", 
-                    email, ex.getStatusCode(), ex.getResponseBodyAsString(), ex);
-            // Не выбрасываем исключение, чтобы не прерывать удаление в user-service
+            deleteUserIsolation.call(() -> restTemplate.exchange(url, HttpMethod.DELETE, entity, Void.class));
+            log.info("Successfully deleted user {} from authentication-service", email);
+        } catch (HttpClientErrorException.NotFound ex) {
+            log.info("User {} not found in authentication-service, nothing to delete", email);
         } catch (RestClientException ex) {
-            log.error("Failed to delete user {} from authentication-service. URL: {}. Error: {}", 
-                    email, baseUrl + "/auth/v1/internal/sync/users/" + email, ex.getMessage(), ex);
-            // Не выбрасываем исключение, чтобы не прерывать удаление в user-service
-        } catch (Exception ex) {
-            log.error("Unexpected error while deleting user {} from authentication-service: {}", email, ex.getMessage(), ex);
+            throw new IllegalStateException("Failed to delete user from authentication-service: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Отправка пакета удалений и обновлений профилей одним запросом.
+     * Используется {@link AuthServiceBatchingClient}. Если authentication-service не поддерживает
+     * пакетный endpoint (404, 405, 501), операции пакета отправляются по одной.
+     *
+     * @throws IllegalStateException если authentication-service недоступен или вернул ошибку
+     * @throws CallNotPermittedException если circuit breaker разомкнут (вызов не выполнялся)
+     * @throws BulkheadFullException если превышен лимит одновременных вызовов (вызов не выполнялся)
+     */
+    public void syncUsers(UserSyncBatchRequest request) {
+        if (baseUrl == null || baseUrl.isBlank()) {
+            log.warn("Authentication service URL not configured. Skipping user synchronization batch.");
+            return;
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (internalApiKey != null && !internalApiKey.isBlank()) {
+            headers.set(INTERNAL_API_KEY_HEADER, internalApiKey);
+        }
+
+        HttpEntity<UserSyncBatchRequest> entity = new HttpEntity<>(request, headers);
+
+        try {
+            syncBatchIsolation.call(() -> restTemplate.postForEntity(
+                    baseUrl + "/auth/v1/internal/sync/users/batch", entity, Void.class));
+            log.info("Synchronized batch with authentication-service: {} deletions, {} profile updates",
+                    request.deletedEmails().size(), request.profileUpdates().size());
+        } catch (HttpClientErrorException.NotFound | HttpClientErrorException.MethodNotAllowed
+                 | HttpServerErrorException.NotImplemented ex) {
+            log.warn("Authentication-service does not support batch synchronization ({}), sending operations one by one",
+                    ex.getStatusCode());
+            syncUsersOneByOne(request);
+        } catch (RestClientException ex) {
+            throw new IllegalStateException("Failed to synchronize user batch with authentication-service: "
+                    + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Пакет по одной операции: для authentication-service без пакетного endpoint.
+     * 404 при удалении считается успехом (см. {@link #deleteUser}).
+     */
+    private void syncUsersOneByOne(UserSyncBatchRequest request) {
+        request.deletedEmails().forEach(this::deleteUser);
+        request.profileUpdates().forEach(this::updateUserProfile);
+    }
+
+    /**
+     * Circuit breaker и bulkhead одной операции. Bulkhead внутри: при разомкнутом breaker
+     * вызов отклоняется до занятия слота bulkhead.
+     */
+    private record Isolation(CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+
+        static Isolation of(CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry,
+                            String name) {
+            return new Isolation(circuitBreakerRegistry.circuitBreaker(name), bulkheadRegistry.bulkhead(name));
+        }
+
+        <T> T call(Supplier<T> call) {
+            return circuitBreaker.executeSupplier(Bulkhead.decorateSupplier(bulkhead, call));
+        }
+    }
+
+    /**
+     * Результат проверки токена: response == null или valid == false - токен отклонен.
+     */
+    private record CachedValidation(String token, TokenValidationResponse response, Instant expiresAt) {
+    }
+
+    /**
+     * Время жизни записи - до expiresAt, вычисленного при проверке.
+     */
+    private static final class ValidationExpiry implements Expiry<Long, CachedValidation> {
+
+        @Override
+        public long expireAfterCreate(Long key, CachedValidation value, long currentTime) {
+            long remaining = Duration.between(Instant.now(), value.expiresAt()).toNanos();
+            return Math.max(remaining, 0L);
+        }
+
+        @Override
+        public long expireAfterUpdate(Long key, CachedValidation value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Long key, CachedValidation value, long currentTime, long currentDuration) {
+            return currentDuration;
         }
     }
 
@@ -0,0 +1,13 @@
+package com.innowise.demo.client.dto;
+
+import java.util.List;
+
+/**
+ * Пакет изменений пользователей для authentication-service
+ * (POST /auth/v1/internal/sync/users/batch). Операции идемпотентны.
+ */
+public record UserSyncBatchRequest(
+        List<String> deletedEmails,
+        List<UpdateUserProfileRequest> profileUpdates
+) {
+}
@@ -0,0 +1,74 @@
+package com.innowise.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.innowise.demo.filter.AdmissionControlFilter;
+import com.innowise.demo.filter.AimdConcurrencyLimiter;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Ограничение нагрузки на входе (см. AdmissionControlFilter).
+ *
+ * Фильтр регистрируется раньше цепочки Spring Security, чтобы при перегрузке отклоненные запросы
+ * не тратили время на проверку токена. Текущий лимит и число выполняемых запросов публикуются
+ * в Micrometer (admission.limit, admission.in_flight), отказы - счетчиком admission.rejected
+ * с тегом priority.
+ */
+@Configuration
+@ConditionalOnProperty(name = "admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControlConfig {
+
+    @Value("${admission.initial-limit:100}")
+    private int initialLimit;
+
+    @Value("${admission.min-limit:10}")
+    private int minLimit;
+
+    @Value("${admission.max-limit:400}")
+    private int maxLimit;
+
+    @Value("${admission.latency-threshold:500ms}")
+    private Duration latencyThreshold;
+
+    @Value("${admission.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${admission.retry-after:1s}")
+    private Duration retryAfter;
+
+    @Bean
+    public AimdConcurrencyLimiter admissionLimiter() {
+        return new AimdConcurrencyLimiter(initialLimit, minLimit, maxLimit, latencyThreshold, backoffRatio);
+    }
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(AimdConcurrencyLimiter admissionLimiter,
+                                                                                 MeterRegistry meterRegistry) {
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(
+                new AdmissionControlFilter(admissionLimiter, retryAfter, meterRegistry));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
+    }
+
+    @Bean
+    public MeterBinder admissionMetrics(AimdConcurrencyLimiter admissionLimiter) {
+        return registry -> {
+            Gauge.builder("admission.limit", admissionLimiter, AimdConcurrencyLimiter::getLimit)
+                    .description("Current adaptive concurrency limit")
+                    .register(registry);
+            Gauge.builder("admission.in_flight", admissionLimiter, AimdConcurrencyLimiter::getInFlight)
+                    .description("Requests currently admitted")
+                    .register(registry);
+        };
+    }
+}
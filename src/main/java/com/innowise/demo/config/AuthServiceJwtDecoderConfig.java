@@ -1,22 +1,29 @@
 package com.innowise.demo.config;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
 
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.security.oauth2.resource.OAuth2ResourceServerProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
-import org.springframework.security.oauth2.jwt.JwtException;
-import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
-import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
-import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
+
+import com.innowise.demo.security.CachingJwtDecoder;
+import com.innowise.demo.security.JwkSetManager;
+import com.innowise.demo.security.JwtAlgorithmDispatcher;
+import com.nimbusds.jose.JWSAlgorithm;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Profile("auth-service")
 @Configuration
@@ -24,86 +31,55 @@ public class AuthServiceJwtDecoderConfig {
 
     private static final Logger log = LoggerFactory.getLogger(AuthServiceJwtDecoderConfig.class);
 
+    private static final Set<JWSAlgorithm> ASYMMETRIC_ALGORITHMS = Set.of(
+            JWSAlgorithm.RS256, JWSAlgorithm.RS384, JWSAlgorithm.RS512,
+            JWSAlgorithm.PS256, JWSAlgorithm.PS384, JWSAlgorithm.PS512,
+            JWSAlgorithm.ES256, JWSAlgorithm.ES384, JWSAlgorithm.ES512);
+
     @Value("${auth.jwt.secret}")
     private String jwtSecret;
 
-    private final OAuth2ResourceServerProperties resourceServerProperties;
+    @Value("${jwt.cache.max-size:10000}")
+    private long jwtCacheMaxSize;
 
-    public AuthServiceJwtDecoderConfig(OAuth2ResourceServerProperties resourceServerProperties) {
-        this.resourceServerProperties = resourceServerProperties;
+    @Value("${jwt.cache.max-ttl:5m}")
+    private Duration jwtCacheMaxTtl;
+
+    /**
+     * Менеджер ключей Keycloak. Создается только если задан jwk-set-uri.
+     * Ключи загружаются в фоне при старте (старт приложения не ждет Keycloak)
+     * и обновляются по расписанию и по неизвестному kid.
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnProperty("spring.security.oauth2.resourceserver.jwt.jwk-set-uri")
+    public JwkSetManager jwkSetManager(
+            RestTemplate restTemplate,
+            @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+            @Value("${auth.jwt.jwks.refresh-interval:5m}") Duration refreshInterval,
+            @Value("${auth.jwt.jwks.min-refresh-interval:30s}") Duration minRefreshInterval,
+            @Value("${auth.jwt.jwks.refresh-timeout:2s}") Duration refreshTimeout) {
+        return new JwkSetManager(jwkSetUri, restTemplate, refreshInterval, minRefreshInterval, refreshTimeout);
     }
 
     @Bean
-    public JwtDecoder jwtDecoder() {
+    public JwtDecoder jwtDecoder(ObjectProvider<JwkSetManager> jwkSetManager,
+                                 ObjectProvider<MeterRegistry> meterRegistry) {
         SecretKey key = new SecretKeySpec(jwtSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-        NimbusJwtDecoder hmacDecoder = NimbusJwtDecoder.withSecretKey(key)
-                .macAlgorithm(MacAlgorithm.HS256)
-                .build();
-
-        // Получаем jwkSetUri для ленивой инициализации RSA декодера
-        // НЕ создаем RSA декодер при инициализации бина - только при первом использовании
-        String jwkSetUri = resourceServerProperties.getJwt().getJwkSetUri();
-        final boolean hasJwkSetUri = StringUtils.hasText(jwkSetUri);
-        final String finalJwkSetUri = jwkSetUri;
-
-        // Используем ленивую инициализацию для RSA декодера
-        // Это предотвращает попытки подключения к Keycloak при старте приложения
-        return new JwtDecoder() {
-            private volatile NimbusJwtDecoder rsaDecoder;
-            private volatile boolean rsaDecoderInitialized = false;
-            private final Object lock = new Object();
 
-            @Override
-            public org.springframework.security.oauth2.jwt.Jwt decode(String token) throws JwtException {
-                try {
-                    // Сначала пытаемся декодировать как HMAC токен (от authentication-service)
-                    return hmacDecoder.decode(token);
-                } catch (JwtException ex) {
-                    // Если HMAC не сработал и есть jwkSetUri, пробуем RSA (от Keycloak)
-                    if (hasJwkSetUri) {
-                        try {
-                            NimbusJwtDecoder rsa = getOrCreateRsaDecoder();
-                            if (rsa != null) {
-                                return rsa.decode(token);
-                            }
-                        } catch (JwtException rsaEx) {
-                            // Если RSA декодер недоступен или не смог декодировать токен,
-                            // выбрасываем оригинальную ошибку HMAC
-                            log.debug("RSA decoder failed or unavailable, using original HMAC error: {}", rsaEx.getMessage());
-                        }
-                    }
-                    // Выбрасываем оригинальную ошибку HMAC
-                    throw ex;
-                }
-            }
+        // Токен разбирается один раз и по alg из заголовка отдается нужному верификатору:
+        // HS256 - общий секрет authentication-service, RS/PS/ES - ключи Keycloak из снимка JwkSetManager
+        JwtAlgorithmDispatcher.Builder dispatcher = JwtAlgorithmDispatcher.builder()
+                .macKey(key, JWSAlgorithm.HS256);
+        JwkSetManager manager = jwkSetManager.getIfAvailable();
+        if (manager != null) {
+            dispatcher.jwkSource(manager.jwkSource(), ASYMMETRIC_ALGORITHMS);
+        } else {
+            log.info("jwk-set-uri is not configured: only HMAC tokens from authentication-service are accepted");
+        }
 
-            private NimbusJwtDecoder getOrCreateRsaDecoder() throws JwtException {
-                if (!rsaDecoderInitialized) {
-                    synchronized (lock) {
-                        if (!rsaDecoderInitialized) {
-                            try {
-                                // Создаем RSA декодер только при первом использовании
-                                // Это предотвращает попытки подключения к Keycloak при старте
-                                rsaDecoder = NimbusJwtDecoder.withJwkSetUri(finalJwkSetUri).build();
-                                log.debug("RSA decoder initialized successfully from Keycloak");
-                            } catch (Exception e) {
-                                // Если не удалось создать RSA декодер, логируем и помечаем как недоступный
-                                log.warn("Could not initialize RSA decoder from Keycloak. Keycloak may be unavailable. Error: {}", e.getMessage());
-                                // Устанавливаем флаг, чтобы не пытаться снова
-                                rsaDecoderInitialized = true;
-                                rsaDecoder = null;
-                                // Выбрасываем исключение, чтобы вернуться к обработке ошибки HMAC
-                                throw new JwtException("RSA decoder unavailable: " + e.getMessage(), e);
-                            }
-                            rsaDecoderInitialized = true;
-                        }
-                    }
-                }
-                if (rsaDecoder == null) {
-                    throw new JwtException("RSA decoder is not available");
-                }
-                return rsaDecoder;
-            }
-        };
+        // Кэшируем успешно проверенные токены, чтобы не повторять HMAC/RSA проверку
+        CachingJwtDecoder cachingDecoder = new CachingJwtDecoder(dispatcher.build(), jwtCacheMaxSize, jwtCacheMaxTtl);
+        meterRegistry.ifAvailable(cachingDecoder::bindTo);
+        return cachingDecoder;
     }
 }
@@ -0,0 +1,92 @@
+package com.innowise.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.HttpClientErrorException;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Изоляция вызовов authentication-service (см. AuthServiceClient).
+ *
+ * Для каждой операции (validate, delete-user, update-profile) создается свой circuit breaker и bulkhead:
+ * - bulkhead ограничивает число одновременных вызовов, лишние отклоняются сразу (без ожидания),
+ *   поэтому медленный authentication-service не занимает все потоки Tomcat;
+ * - circuit breaker размыкается по доле ошибок или медленных вызовов, после wait-duration
+ *   пропускает несколько пробных вызовов (half-open) и замыкается при их успехе.
+ * Ответы 4xx (токен отклонен, пользователь не найден) и отказы bulkhead не считаются сбоем сервиса.
+ * Метрики публикуются в Micrometer (resilience4j.circuitbreaker.*, resilience4j.bulkhead.*).
+ */
+@Configuration
+public class AuthServiceResilienceConfig {
+
+    @Value("${authentication.service.circuit-breaker.failure-rate-threshold:50}")
+    private float failureRateThreshold;
+
+    @Value("${authentication.service.circuit-breaker.slow-call-rate-threshold:50}")
+    private float slowCallRateThreshold;
+
+    @Value("${authentication.service.circuit-breaker.slow-call-duration:2s}")
+    private Duration slowCallDuration;
+
+    @Value("${authentication.service.circuit-breaker.sliding-window-size:20}")
+    private int slidingWindowSize;
+
+    @Value("${authentication.service.circuit-breaker.minimum-number-of-calls:10}")
+    private int minimumNumberOfCalls;
+
+    @Value("${authentication.service.circuit-breaker.wait-duration-in-open-state:30s}")
+    private Duration waitDurationInOpenState;
+
+    @Value("${authentication.service.circuit-breaker.permitted-calls-in-half-open-state:3}")
+    private int permittedCallsInHalfOpenState;
+
+    @Value("${authentication.service.bulkhead.max-concurrent-calls:10}")
+    private int maxConcurrentCalls;
+
+    @Value("${authentication.service.bulkhead.max-wait:0ms}")
+    private Duration maxWait;
+
+    @Bean
+    public CircuitBreakerRegistry authServiceCircuitBreakerRegistry() {
+        return CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slowCallDurationThreshold(slowCallDuration)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumNumberOfCalls)
+                .waitDurationInOpenState(waitDurationInOpenState)
+                .permittedNumberOfCallsInHalfOpenState(permittedCallsInHalfOpenState)
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .ignoreExceptions(HttpClientErrorException.class, BulkheadFullException.class)
+                .build());
+    }
+
+    @Bean
+    public BulkheadRegistry authServiceBulkheadRegistry() {
+        return BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(maxWait)
+                .build());
+    }
+
+    @Bean
+    public MeterBinder authServiceCircuitBreakerMetrics(CircuitBreakerRegistry authServiceCircuitBreakerRegistry) {
+        return TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(authServiceCircuitBreakerRegistry);
+    }
+
+    @Bean
+    public MeterBinder authServiceBulkheadMetrics(BulkheadRegistry authServiceBulkheadRegistry) {
+        return TaggedBulkheadMetrics.ofBulkheadRegistry(authServiceBulkheadRegistry);
+    }
+}
@@ -0,0 +1,56 @@
+package com.innowise.demo.config;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.innowise.demo.dto.CardInfoDto;
+import com.innowise.demo.dto.PagedUserResponse;
+import com.innowise.demo.dto.UserDto;
+
+/**
+ * Настройки JSON сериализации ответов.
+ *
+ * Blackbird заменяет reflection-доступ к полям и getter'ам сгенерированными аксессорами
+ * (Spring Boot регистрирует бины Module в ObjectMapper автоматически). Генерация выполняется
+ * при построении сериализатора типа, поэтому сериализаторы основных DTO строятся при старте,
+ * а не на первых запросах.
+ */
+@Configuration
+public class JacksonConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(JacksonConfig.class);
+
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    /**
+     * Строит и кэширует в ObjectMapper сериализаторы UserDto, CardInfoDto и PagedUserResponse.
+     */
+    @Bean
+    public ApplicationRunner jsonSerializersWarmUp(ObjectMapper objectMapper) {
+        return args -> {
+            CardInfoDto card = new CardInfoDto();
+            card.setExpirationDate(LocalDate.now());
+            UserDto user = new UserDto();
+            user.setBirthDate(LocalDate.now());
+            user.setCards(List.of(card));
+            try {
+                objectMapper.writeValueAsBytes(new PagedUserResponse(List.of(user), 0, 1, 1, 1));
+            } catch (JsonProcessingException ex) {
+                log.warn("JSON serializers warm-up failed: {}", ex.getMessage());
+            }
+        };
+    }
+}
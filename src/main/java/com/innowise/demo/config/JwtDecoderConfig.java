@@ -1,57 +1,97 @@
 package com.innowise.demo.config;
 
+import java.net.URL;
+import java.time.Duration;
+import java.util.Set;
+
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
-import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
 import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
-import org.springframework.security.oauth2.jwt.JwtException;
-import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.web.client.RestTemplate;
+
+import com.innowise.demo.security.CachingJwtDecoder;
+import com.innowise.demo.security.JwkSetManager;
+import com.innowise.demo.security.JwtAlgorithmDispatcher;
+import com.nimbusds.jose.JWSAlgorithm;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * Конфигурация для кастомного JwtDecoder, который:
  * 1. Получает JWK set из внутреннего адреса Keycloak (доступного из Docker сети)
  * 2. Проверяет issuer вручную (чтобы соответствовал issuer в токене от клиента)
+ * 3. Кэширует успешно проверенные токены (см. {@link CachingJwtDecoder})
  */
 
 @Profile("keycloak")
 @Configuration
 public class JwtDecoderConfig {
 
+    private static final Set<JWSAlgorithm> KEYCLOAK_ALGORITHMS = Set.of(
+            JWSAlgorithm.RS256, JWSAlgorithm.RS384, JWSAlgorithm.RS512,
+            JWSAlgorithm.PS256, JWSAlgorithm.PS384, JWSAlgorithm.PS512,
+            JWSAlgorithm.ES256, JWSAlgorithm.ES384, JWSAlgorithm.ES512);
+
     @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}")
     private String issuerUri;
 
     @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}")
     private String jwkSetUri;
 
+    @Value("${jwt.cache.max-size:10000}")
+    private long jwtCacheMaxSize;
+
+    @Value("${jwt.cache.max-ttl:5m}")
+    private Duration jwtCacheMaxTtl;
+
+    /**
+     * Ключи Keycloak загружаются в фоне и обновляются по расписанию и по неизвестному kid.
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public JwkSetManager jwkSetManager(
+            RestTemplate restTemplate,
+            @Value("${auth.jwt.jwks.refresh-interval:5m}") Duration refreshInterval,
+            @Value("${auth.jwt.jwks.min-refresh-interval:30s}") Duration minRefreshInterval,
+            @Value("${auth.jwt.jwks.refresh-timeout:2s}") Duration refreshTimeout) {
+        return new JwkSetManager(jwkSetUri, restTemplate, refreshInterval, minRefreshInterval, refreshTimeout);
+    }
+
     @Bean
-    public JwtDecoder jwtDecoder() {
-        // Создаем декодер, который получает JWK set из внутреннего адреса Keycloak
-        NimbusJwtDecoder decoder = NimbusJwtDecoder.withJwkSetUri(jwkSetUri).build();
-        
-        // Обертываем декодер для проверки issuer
-        return new JwtDecoder() {
-            @Override
-            public Jwt decode(String token) throws JwtException {
-                Jwt jwt = decoder.decode(token);
-                
-                // Проверяем issuer
-                String tokenIssuer = jwt.getIssuer().toString();
-                if (!issuerUri.equals(tokenIssuer)) {
-                    OAuth2Error error = new OAuth2Error(
-                        "invalid_token",
-                        "The iss claim is not valid. Expected: " + issuerUri + ", but was: " + tokenIssuer,
-                        null
-                    );
-                    throw new OAuth2AuthenticationException(error);
-                }
-                
-                return jwt;
-            }
-        };
+    public JwtDecoder jwtDecoder(JwkSetManager jwkSetManager, ObjectProvider<MeterRegistry> meterRegistry) {
+        // Токен разбирается один раз; проверка issuer работает с уже разобранными claims
+        // в общей цепочке валидаторов, без повторного чтения токена
+        OAuth2TokenValidator<Jwt> validator = new DelegatingOAuth2TokenValidator<>(
+                JwtValidators.createDefault(), this::validateIssuer);
+
+        JwtDecoder dispatcher = JwtAlgorithmDispatcher.builder()
+                .jwkSource(jwkSetManager.jwkSource(), KEYCLOAK_ALGORITHMS)
+                .validator(validator)
+                .build();
+
+        CachingJwtDecoder cachingDecoder = new CachingJwtDecoder(dispatcher, jwtCacheMaxSize, jwtCacheMaxTtl);
+        meterRegistry.ifAvailable(cachingDecoder::bindTo);
+        return cachingDecoder;
     }
-}
 
+    private OAuth2TokenValidatorResult validateIssuer(Jwt jwt) {
+        URL issuer = jwt.getIssuer();
+        String tokenIssuer = issuer != null ? issuer.toString() : null;
+        if (issuerUri.equals(tokenIssuer)) {
+            return OAuth2TokenValidatorResult.success();
+        }
+        return OAuth2TokenValidatorResult.failure(new OAuth2Error(
+                "invalid_token",
+                "The iss claim is not valid. Expected: " + issuerUri + ", but was: " + tokenIssuer,
+                null
+        ));
+    }
+}
@@ -0,0 +1,25 @@
+package com.innowise.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Пул для промахов кэша в неблокирующих чтениях (ReactiveReadController).
+ *
+ * Попадания обслуживаются реактивным клиентом Redis без занятого потока, а промах выполняет
+ * обычный блокирующий путь (JDBC) в ограниченном пуле: число потоков и очередь задач ограничены,
+ * при переполнении очереди запрос отклоняется (503), а не занимает потоки Tomcat.
+ */
+@Configuration
+public class ReactiveReadConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler cacheMissScheduler(@Value("${reactive.read.blocking-pool.size:16}") int size,
+                                        @Value("${reactive.read.blocking-pool.queue-size:1000}") int queueSize) {
+        return Schedulers.newBoundedElastic(size, queueSize, "cache-miss");
+    }
+}
@@ -6,6 +6,7 @@ import java.time.LocalDate;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
@@ -13,6 +14,9 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import com.innowise.demo.cache.RedisBulkCache;
+import com.innowise.demo.cache.TransactionAwareCacheManager;
+import com.innowise.demo.cache.UserJsonCache;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -20,15 +24,18 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
 import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
 
 @Configuration
 @EnableCaching
 public class RedisConfig {
 
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public RedisCacheManager redisCacheManager(RedisConnectionFactory connectionFactory) {
         ObjectMapper mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
+        // Сгенерированные аксессоры вместо reflection: кэш сериализует те же DTO, что и ответы
+        mapper.registerModule(new BlackbirdModule());
         mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
         mapper.configOverride(LocalDate.class)
                 .setFormat(JsonFormat.Value.forPattern("yyyy-MM-dd"));
@@ -50,8 +57,22 @@ public class RedisConfig {
 
         return RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(config)
+                // Готовые JSON ответы хранятся как байты, без сериализатора значений (см. UserJsonCache)
+                .withCacheConfiguration(UserJsonCache.CACHE_NAME,
+                        config.serializeValuesWith(RedisSerializationContext.SerializationPair.byteArray()))
                 .build();
     }
+
+    /**
+     * CacheManager для @Cacheable/@CachePut/@CacheEvict и кода сервисов: изменения кэшей
+     * в транзакции применяются только после ее фиксации (см. TransactionAwareCacheManager).
+     */
+    @Bean
+    @Primary
+    public TransactionAwareCacheManager cacheManager(RedisCacheManager redisCacheManager,
+                                                     RedisBulkCache redisBulkCache) {
+        return new TransactionAwareCacheManager(redisCacheManager, redisBulkCache);
+    }
     @Bean
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory, ObjectMapper mapper) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
@@ -1,17 +1,99 @@
 package com.innowise.demo.config;
 
+import java.time.Duration;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+
+/**
+ * HTTP клиент для вызовов authentication-service (и загрузки JWK set).
+ *
+ * RestTemplate работает поверх пула соединений Apache HttpClient 5:
+ * - соединения переиспользуются (keep-alive), число соединений ограничено на маршрут и в целом;
+ * - все фазы запроса ограничены таймаутами (получение соединения из пула, connect, чтение ответа),
+ *   поэтому медленный authentication-service не держит поток Tomcat бесконечно;
+ * - простаивающие и просроченные соединения закрываются фоновым потоком;
+ * - метрики пула публикуются в Micrometer (httpcomponents.httpclient.pool.*).
+ */
 @Configuration
 public class RestTemplateConfig {
 
-    @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
-        return builder.build();
+    @Value("${authentication.service.http.max-total:50}")
+    private int maxTotal;
+
+    @Value("${authentication.service.http.max-per-route:20}")
+    private int maxPerRoute;
+
+    @Value("${authentication.service.http.connect-timeout:2s}")
+    private Duration connectTimeout;
+
+    @Value("${authentication.service.http.read-timeout:5s}")
+    private Duration readTimeout;
+
+    @Value("${authentication.service.http.pool-acquire-timeout:1s}")
+    private Duration poolAcquireTimeout;
+
+    @Value("${authentication.service.http.idle-eviction:30s}")
+    private Duration idleEviction;
+
+    @Value("${authentication.service.http.connection-ttl:5m}")
+    private Duration connectionTtl;
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager httpConnectionManager() {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setTimeToLive(TimeValue.of(connectionTtl))
+                        // Соединение, простоявшее дольше этого времени, проверяется перед повторным использованием
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
     }
-}
 
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager httpConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(httpConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(poolAcquireTimeout))
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        .build())
+                .evictIdleConnections(TimeValue.of(idleEviction))
+                .evictExpiredConnections()
+                .build();
+    }
 
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder builder, CloseableHttpClient httpClient) {
+        return builder
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
+                .build();
+    }
+
+    /**
+     * Метрики пула: занятые, свободные и ожидающие соединения, лимиты.
+     */
+    @Bean
+    public MeterBinder httpConnectionPoolMetrics(PoolingHttpClientConnectionManager httpConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(httpConnectionManager, "authentication-service");
+    }
+}
@@ -1,23 +1,34 @@
 package com.innowise.demo.config;
 
+import java.time.Duration;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.crypto.SecretKey;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.web.SecurityFilterChain;
 
+import com.innowise.demo.security.AuthenticatedUserConverter;
+import com.innowise.demo.security.CachingJwtDecoder;
+
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * Конфигурация Spring Security для user-service.
@@ -30,6 +41,12 @@ public class SecurityConfig {
     @Value("${jwt.secret}")
     private String jwtSecret;
 
+    @Value("${jwt.cache.max-size:10000}")
+    private long jwtCacheMaxSize;
+
+    @Value("${jwt.cache.max-ttl:5m}")
+    private Duration jwtCacheMaxTtl;
+
     /**
      * Настраивает Security Filter Chain для работы с JWT токенами.
      * 
@@ -39,7 +56,8 @@ public class SecurityConfig {
      * - Публичные эндпоинты: /actuator/health, /actuator/info
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtDecoder jwtDecoder,
+                                                   AuthenticatedUserConverter jwtAuthenticationConverter) throws Exception {
         http
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -49,9 +67,10 @@ public class SecurityConfig {
                         
                         // Эндпоинты только для ADMIN
                         .requestMatchers("/api/cache/**").hasRole("ADMIN")
+                        .requestMatchers("/api/v1/admin/**").hasRole("ADMIN")
                         
-                        // Эндпоинты для получения списка всех пользователей - только ADMIN
-                        .requestMatchers(HttpMethod.GET, "/api/v1/users").hasRole("ADMIN")
+                        // Эндпоинты для получения списка всех пользователей (и его выгрузки) - только ADMIN
+                        .requestMatchers(HttpMethod.GET, "/api/v1/users", "/api/v1/users/stream").hasRole("ADMIN")
                         
                         // Эндпоинты для создания пользователя администратором - только ADMIN
                         .requestMatchers(HttpMethod.POST, "/api/v1/users").hasRole("ADMIN")
@@ -72,13 +91,16 @@ public class SecurityConfig {
                         
                         // Остальные эндпоинты требуют аутентификации (проверка доступа в контроллерах)
                         .requestMatchers("/api/v1/users/**", "/api/v1/cards/**").hasAnyRole("ADMIN", "USER")
+
+                        // Неблокирующие чтения (ReactiveReadController) - проверка доступа в контроллере
+                        .requestMatchers(HttpMethod.GET, "/api/v1/reactive/**").hasAnyRole("ADMIN", "USER")
                         
                         .anyRequest().authenticated()
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2
                         .jwt(jwt -> jwt
-                                .decoder(jwtDecoder())
-                                .jwtAuthenticationConverter(jwtAuthenticationConverter())
+                                .decoder(jwtDecoder)
+                                .jwtAuthenticationConverter(jwtAuthenticationConverter)
                         )
                 );
 
@@ -88,33 +110,41 @@ public class SecurityConfig {
     /**
      * Создает JWT Decoder для валидации токенов от auth-service.
      * Использует тот же секрет, что и auth-service (HMAC SHA-256).
+     * Проверенные токены кэшируются (см. {@link CachingJwtDecoder}), чтобы повторные
+     * запросы с тем же токеном не разбирали JSON и не пересчитывали HMAC.
+     * В профилях auth-service/keycloak декодер объявляется в собственных конфигурациях.
      */
     @Bean
-    public JwtDecoder jwtDecoder() {
+    @Profile("!auth-service & !keycloak")
+    public JwtDecoder jwtDecoder(ObjectProvider<MeterRegistry> meterRegistry) {
         SecretKey secretKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
-        return NimbusJwtDecoder.withSecretKey(secretKey).build();
+        CachingJwtDecoder decoder = new CachingJwtDecoder(
+                NimbusJwtDecoder.withSecretKey(secretKey).build(), jwtCacheMaxSize, jwtCacheMaxTtl);
+        meterRegistry.ifAvailable(decoder::bindTo);
+        return decoder;
     }
 
     /**
      * Создает JWT Authentication Converter для правильной обработки ролей из токена.
      * Извлекает роль из claim "role" и преобразует её в GrantedAuthority.
      * Поддерживает как "ROLE_USER"/"ROLE_ADMIN", так и "USER"/"ADMIN".
+     * Списки authorities неизменяемы и переиспользуются для одинаковых значений роли.
+     * Вместе с authorities один раз вычисляется контекст пользователя ({@link com.innowise.demo.security.AuthenticatedUser}).
      */
     @Bean
-    public JwtAuthenticationConverter jwtAuthenticationConverter() {
-        JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
-        converter.setJwtGrantedAuthoritiesConverter(jwt -> {
+    public AuthenticatedUserConverter jwtAuthenticationConverter() {
+        Map<String, Collection<GrantedAuthority>> authoritiesByRole = new ConcurrentHashMap<>();
+        return new AuthenticatedUserConverter(jwt -> {
             String role = jwt.getClaimAsString("role");
             if (role == null || role.isEmpty()) {
                 return Collections.emptyList();
             }
-            
-            // Убираем префикс ROLE_, если он есть (Spring Security добавит его автоматически)
-            String authority = role.startsWith("ROLE_") ? role.substring(5) : role;
-            
-            return Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + authority));
+
+            return authoritiesByRole.computeIfAbsent(role, value -> {
+                // Убираем префикс ROLE_, если он есть (Spring Security добавит его автоматически)
+                String authority = value.startsWith("ROLE_") ? value.substring(5) : value;
+                return List.of(new SimpleGrantedAuthority("ROLE_" + authority));
+            });
         });
-        return converter;
     }
 }
-
@@ -0,0 +1,30 @@
+package com.innowise.demo.config;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.innowise.demo.cache.CachedUserJsonHttpMessageConverter;
+import com.innowise.demo.security.AuthenticatedUserArgumentResolver;
+
+/**
+ * Настройки Spring MVC: внедрение контекста текущего пользователя в контроллеры
+ * и запись готовых JSON ответов из кэша.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new AuthenticatedUserArgumentResolver());
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Перед Jackson: иначе CachedUserJson был бы сериализован как обычный объект
+        converters.add(0, new CachedUserJsonHttpMessageConverter());
+    }
+}
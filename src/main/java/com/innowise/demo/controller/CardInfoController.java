@@ -4,9 +4,9 @@ import jakarta.validation.Valid;
 
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -16,11 +16,17 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innowise.demo.dto.CardBatchRequest;
+import com.innowise.demo.dto.CardBatchResponse;
 import com.innowise.demo.dto.CardInfoDto;
-import com.innowise.demo.dto.UserDto;
+import com.innowise.demo.exception.CardInfoNotFoundException;
+import com.innowise.demo.security.AuthenticatedUser;
+import com.innowise.demo.security.UserIdResolver;
 import com.innowise.demo.service.CardInfoService;
-import com.innowise.demo.service.UserService;
-import com.innowise.demo.util.SecurityUtils;
+import com.innowise.demo.util.EntityTag;
+import com.innowise.demo.util.NdjsonResponse;
 
 import lombok.RequiredArgsConstructor;
 
@@ -29,7 +35,9 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class CardInfoController {
     private final CardInfoService cardInfoService;
-    private final UserService userService;
+    private final UserIdResolver userIdResolver;
+    private final PageSizeGuard pageSizeGuard;
+    private final ObjectMapper objectMapper;
 
     /**
      * Создание карты.
@@ -39,14 +47,9 @@ public class CardInfoController {
     @PostMapping
     public ResponseEntity<CardInfoDto> addCardInfo(
             @Valid @RequestBody CardInfoDto cardInfoDto,
-            Authentication authentication) {
-        // Получаем информацию о пользователе, для которого создается карта
-        UserDto cardOwner = userService.findUserById(cardInfoDto.getUserId());
-        
-        // Проверка доступа: USER может создать карту только для себя
-        if (!SecurityUtils.hasAccess(authentication, cardOwner.getEmail())) {
-            throw new AccessDeniedException("Access denied: You can only create cards for yourself");
-        }
+            AuthenticatedUser currentUser) {
+        // Проверка доступа: USER может создать карту только для себя (сравнение id, без загрузки владельца)
+        ensureOwnerOrAdmin(currentUser, cardInfoDto.getUserId(), "Access denied: You can only create cards for yourself");
         
         CardInfoDto created = cardInfoService.save(cardInfoDto);
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
@@ -55,58 +58,70 @@ public class CardInfoController {
     /**
      * Получение карты по ID.
      * ADMIN: может получить любую карту.
-     * USER: может получить только свои карты.
+     * USER: может получить только свои карты (чужая карта - 404, как несуществующая).
+     * Ответ содержит ETag: при совпадении с If-None-Match возвращается 304 без тела.
      */
     @GetMapping("/{id}")
     public ResponseEntity<CardInfoDto> getCardInfoById(
             @PathVariable Long id,
-            Authentication authentication) {
+            AuthenticatedUser currentUser) {
         CardInfoDto card = cardInfoService.getCardInfoById(id);
         
-        // Получаем информацию о владельце карты
-        UserDto cardOwner = userService.findUserById(card.getUserId());
-        
-        // Проверка доступа: USER может получить только свои карты
-        if (!SecurityUtils.hasAccess(authentication, cardOwner.getEmail())) {
-            throw new AccessDeniedException("Access denied: You can only access your own cards");
+        // Сервис загружает карту с фильтром по владельцу, но результат может прийти из общего кэша cardCache,
+        // поэтому владелец сверяется еще раз (только сравнение id, без запросов)
+        if (!currentUser.isAdmin() && !userIdResolver.isOwner(currentUser, card.getUserId())) {
+            throw new CardInfoNotFoundException("CardInfo with id " + id + " not found");
         }
         
-        return ResponseEntity.ok(card);
+        return EntityTag.ok(card);
+    }
+
+    /**
+     * Пакетное получение карт по списку id (до 100).
+     * ADMIN: получает все найденные карты.
+     * USER: получает только свои карты, чужие возвращаются в missingIds (как несуществующие).
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<CardBatchResponse> getCardInfosBatch(@Valid @RequestBody CardBatchRequest request) {
+        return ResponseEntity.ok(cardInfoService.getCardInfosBatch(request.getIds()));
     }
 
     /**
      * Получение списка всех карт.
      * ADMIN: может получить все карты.
      * USER: может получить только свои карты (фильтрация выполняется в сервисе).
+     * size больше api.pagination.max-size - 400.
      */
     @GetMapping
     public ResponseEntity<Page<CardInfoDto>> getAllCardInfos(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            Authentication authentication) {
+            AuthenticatedUser currentUser) {
+        pageSizeGuard.check(page, size);
         // Сервис сам отфильтрует карты: ADMIN получит все карты, USER - только свои
         return ResponseEntity.ok(cardInfoService.getAllCardInfos(page, size));
     }
 
+    /**
+     * Выгрузка карт в NDJSON (одна карта на строку, по возрастанию id).
+     * ADMIN получает все карты, USER - только свои. Карты читаются из БД курсором
+     * и пишутся в ответ по мере чтения, без постраничной загрузки в память.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCardInfos(AuthenticatedUser currentUser) {
+        return NdjsonResponse.<CardInfoDto>of(objectMapper,
+                sink -> cardInfoService.streamCardInfos(currentUser, sink));
+    }
+
     /**
      * Обновление карты.
      * ADMIN: может обновить любую карту.
-     * USER: может обновить только свои карты.
+     * USER: может обновить только свои карты (проверка выполняется запросом с фильтром по владельцу в сервисе).
      */
     @PutMapping("/{id}")
     public ResponseEntity<CardInfoDto> updateCardInfo(
             @PathVariable Long id,
-            @Valid @RequestBody CardInfoDto dto,
-            Authentication authentication) {
-        // Получаем текущую карту для проверки доступа
-        CardInfoDto currentCard = cardInfoService.getCardInfoById(id);
-        UserDto cardOwner = userService.findUserById(currentCard.getUserId());
-        
-        // Проверка доступа: USER может обновить только свои карты
-        if (!SecurityUtils.hasAccess(authentication, cardOwner.getEmail())) {
-            throw new AccessDeniedException("Access denied: You can only update your own cards");
-        }
-        
+            @Valid @RequestBody CardInfoDto dto) {
         return ResponseEntity.ok(cardInfoService.updateCardInfo(id, dto));
     }
 
@@ -118,16 +133,23 @@ public class CardInfoController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteCardInfo(
             @PathVariable Long id,
-            Authentication authentication) {
+            AuthenticatedUser currentUser) {
         // Проверка доступа: только ADMIN может удалять карты
-        if (!SecurityUtils.isAdmin(authentication)) {
+        if (!currentUser.isAdmin()) {
             throw new AccessDeniedException("Access denied: Only administrators can delete cards");
         }
         
-        // Проверяем, что карта существует
-        cardInfoService.getCardInfoById(id);
-        
+        // Карта загружается один раз в сервисе (CardInfoNotFoundException, если ее нет)
         cardInfoService.deleteCardInfo(id);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * ADMIN имеет доступ ко всем картам, USER - только к картам, у которых user_id совпадает с его id.
+     */
+    private void ensureOwnerOrAdmin(AuthenticatedUser currentUser, Long ownerId, String message) {
+        if (!currentUser.isAdmin() && !userIdResolver.isOwner(currentUser, ownerId)) {
+            throw new AccessDeniedException(message);
+        }
+    }
 }
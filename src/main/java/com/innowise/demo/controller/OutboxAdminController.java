@@ -0,0 +1,72 @@
+package com.innowise.demo.controller;
+
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import com.innowise.demo.dto.OutboxEventDto;
+import com.innowise.demo.dto.PagedOutboxEventResponse;
+import com.innowise.demo.model.OutboxStatus;
+import com.innowise.demo.security.AuthenticatedUser;
+import com.innowise.demo.service.OutboxService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Просмотр очереди синхронизации с authentication-service. Только для ADMIN.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/admin/outbox")
+@RequiredArgsConstructor
+public class OutboxAdminController {
+    private final OutboxService outboxService;
+    private final PageSizeGuard pageSizeGuard;
+
+    /**
+     * Список событий, новые первыми. Без status возвращаются события во всех статусах.
+     * Отрицательный page или size вне 1..api.pagination.max-size - 400.
+     */
+    @GetMapping
+    public ResponseEntity<PagedOutboxEventResponse> getEvents(
+            @RequestParam(required = false) OutboxStatus status,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            AuthenticatedUser currentUser) {
+        ensureAdmin(currentUser);
+        pageSizeGuard.check(page, size);
+        return ResponseEntity.ok(outboxService.findEvents(status, page, size));
+    }
+
+    /**
+     * Количество событий по статусам (PENDING, SENT, FAILED).
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<OutboxStatus, Long>> getStats(AuthenticatedUser currentUser) {
+        ensureAdmin(currentUser);
+        return ResponseEntity.ok(outboxService.countByStatus());
+    }
+
+    /**
+     * Повторная доставка события (обычно FAILED после исчерпания попыток).
+     */
+    @PostMapping("/{id}/retry")
+    public ResponseEntity<OutboxEventDto> retry(@PathVariable Long id, AuthenticatedUser currentUser) {
+        ensureAdmin(currentUser);
+        log.info("Admin user {} requested retry of outbox event {}", currentUser.getIdentifier(), id);
+        return ResponseEntity.ok(outboxService.retry(id));
+    }
+
+    private static void ensureAdmin(AuthenticatedUser currentUser) {
+        if (!currentUser.isAdmin()) {
+            throw new AccessDeniedException("Access denied: Only administrators can view the outbox");
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.innowise.demo.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.innowise.demo.exception.InvalidRequestException;
+
+/**
+ * Проверка параметров постраничных запросов.
+ * Размер страницы ограничен сверху: страница с тысячами пользователей и их картами
+ * означает тяжелый запрос к БД, большой ответ и большую запись в кэше.
+ */
+@Component
+class PageSizeGuard {
+
+    private final int maxSize;
+
+    PageSizeGuard(@Value("${api.pagination.max-size:100}") int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    void check(int page, int size) {
+        if (page < 0) {
+            throw new InvalidRequestException("Page index must not be negative");
+        }
+        if (size < 1 || size > maxSize) {
+            throw new InvalidRequestException("Page size must be between 1 and " + maxSize);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.innowise.demo.controller;
+
+import java.util.concurrent.Callable;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import com.innowise.demo.cache.CachedUserJson;
+import com.innowise.demo.cache.ReactiveCacheReader;
+import com.innowise.demo.cache.UserJsonCache;
+import com.innowise.demo.dto.CardInfoDto;
+import com.innowise.demo.dto.UserDto;
+import com.innowise.demo.exception.CardInfoNotFoundException;
+import com.innowise.demo.security.AuthenticatedUser;
+import com.innowise.demo.security.UserIdResolver;
+import com.innowise.demo.service.CardInfoService;
+import com.innowise.demo.service.UserService;
+import com.innowise.demo.util.EntityTag;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Неблокирующие версии самых частых чтений: /self, пользователь по id и email, карта по id.
+ *
+ * Ответы те же, что у UserController и CardInfoController для полного представления
+ * (без fields/include), включая ETag. Запись кэша читается реактивным клиентом Redis:
+ * пока Redis отвечает, поток Tomcat не занят (запрос обрабатывается асинхронно).
+ * При промахе выполняется обычный блокирующий путь в ограниченном пуле cacheMissScheduler
+ * с контекстом безопасности запроса.
+ */
+@RestController
+@RequestMapping("/api/v1/reactive")
+@RequiredArgsConstructor
+public class ReactiveReadController {
+    private static final String CARD_CACHE = "cardCache";
+    private static final String ACCESS_DENIED = "Access denied: You can only access your own information";
+
+    private final ReactiveCacheReader cacheReader;
+    private final UserService userService;
+    private final CardInfoService cardInfoService;
+    private final UserJsonCache userJsonCache;
+    private final UserIdResolver userIdResolver;
+    private final Scheduler cacheMissScheduler;
+
+    /**
+     * Свои данные по email из JWT токена.
+     */
+    @GetMapping("/users/self")
+    public Mono<ResponseEntity<Object>> getSelfUser(AuthenticatedUser currentUser) {
+        String email = currentUser.getEmail();
+        return user(UserJsonCache.emailKey(email), () -> userService.getUserByEmail(email), currentUser);
+    }
+
+    /**
+     * Пользователь по ID. ADMIN: любой пользователь, USER: только свои данные.
+     */
+    @GetMapping("/users/id")
+    public Mono<ResponseEntity<Object>> getUserById(@RequestParam Long id, AuthenticatedUser currentUser) {
+        return user(UserJsonCache.idKey(id), () -> userService.findUserById(id), currentUser);
+    }
+
+    /**
+     * Пользователь по email. USER может запрашивать только свой email (проверка до чтения).
+     */
+    @GetMapping("/users/email")
+    public Mono<ResponseEntity<Object>> getUserByEmail(@RequestParam String email, AuthenticatedUser currentUser) {
+        if (!currentUser.canAccess(email)) {
+            throw new AccessDeniedException(ACCESS_DENIED);
+        }
+        return user(UserJsonCache.emailKey(email), () -> userService.getUserByEmail(email), currentUser);
+    }
+
+    /**
+     * Карта по ID. USER: чужая карта - 404, как несуществующая.
+     */
+    @GetMapping("/cards/{id}")
+    public Mono<ResponseEntity<CardInfoDto>> getCardInfoById(@PathVariable Long id, AuthenticatedUser currentUser) {
+        return cacheReader.get(CARD_CACHE, id, CardInfoDto.class)
+                .switchIfEmpty(blocking(() -> cardInfoService.getCardInfoById(id)))
+                .filterWhen(card -> isOwnerOrAdmin(currentUser, card.getUserId()))
+                .switchIfEmpty(Mono.error(() -> new CardInfoNotFoundException("CardInfo with id " + id + " not found")))
+                .map(EntityTag::ok);
+    }
+
+    /**
+     * Пользователь из готового JSON users_json; при промахе - из сервиса (кэш users или БД)
+     * с сохранением JSON для следующих запросов.
+     */
+    private Mono<ResponseEntity<Object>> user(String key, Callable<UserDto> loader, AuthenticatedUser currentUser) {
+        return cacheReader.getUserJson(key)
+                .map(json -> {
+                    checkAccess(currentUser, json.email());
+                    return EntityTag.<Object>ok(json, json.etag());
+                })
+                .switchIfEmpty(blocking(() -> {
+                    UserDto user = loader.call();
+                    checkAccess(currentUser, user.getEmail());
+                    return userJsonCache.put(user)
+                            .map(json -> EntityTag.<Object>ok(json, json.etag()))
+                            .orElseGet(() -> EntityTag.ok(user, EntityTag.of(user)));
+                }));
+    }
+
+    /**
+     * Владелец сверяется по id без запроса к БД, если id пользователя уже известен;
+     * иначе id разрешается в пуле для промахов.
+     */
+    private Mono<Boolean> isOwnerOrAdmin(AuthenticatedUser currentUser, Long ownerId) {
+        if (currentUser.isAdmin()) {
+            return Mono.just(true);
+        }
+        Long userId = userIdResolver.resolveCached(currentUser);
+        if (userId != null) {
+            return Mono.just(userId.equals(ownerId));
+        }
+        return blocking(() -> userIdResolver.isOwner(currentUser, ownerId));
+    }
+
+    private static void checkAccess(AuthenticatedUser currentUser, String ownerEmail) {
+        if (!currentUser.canAccess(ownerEmail)) {
+            throw new AccessDeniedException(ACCESS_DENIED);
+        }
+    }
+
+    /**
+     * Блокирующий вызов в cacheMissScheduler. Контекст безопасности захватывается сейчас,
+     * в потоке запроса: сервисы проверяют роли через @PreAuthorize и AuthenticatedUser.current().
+     */
+    private <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(new DelegatingSecurityContextCallable<>(call))
+                .subscribeOn(cacheMissScheduler);
+    }
+}
@@ -1,10 +1,12 @@
 package com.innowise.demo.controller;
 
+import java.util.Optional;
+
 import jakarta.validation.Valid;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -14,12 +16,21 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innowise.demo.cache.CachedUserJson;
+import com.innowise.demo.cache.UserJsonCache;
 import com.innowise.demo.dto.CreateUserFromTokenRequest;
 import com.innowise.demo.dto.PagedUserResponse;
 import com.innowise.demo.dto.UpdateUserDto;
+import com.innowise.demo.dto.UserBatchRequest;
+import com.innowise.demo.dto.UserBatchResponse;
 import com.innowise.demo.dto.UserDto;
+import com.innowise.demo.dto.UserFields;
+import com.innowise.demo.security.AuthenticatedUser;
 import com.innowise.demo.service.UserService;
-import com.innowise.demo.util.SecurityUtils;
+import com.innowise.demo.util.EntityTag;
+import com.innowise.demo.util.NdjsonResponse;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -30,25 +41,43 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class UserController {
     private final UserService userService;
+    private final PageSizeGuard pageSizeGuard;
+    private final UserJsonCache userJsonCache;
+    private final ObjectMapper objectMapper;
 
     /**
      * Получение своих данных из JWT токена.
      * Email извлекается из токена (claim "sub"), пользователь получает свои данные.
+     * Ответ содержит ETag: при совпадении с If-None-Match возвращается 304 без тела.
+     * Полное представление (без fields/include) отдается готовым JSON из users_json, если он там есть.
      * 
-     * @param authentication объект аутентификации, содержащий JWT токен
+     * @param currentUser контекст текущего пользователя из JWT токена
+     * @param fields поля ответа через запятую (см. UserFields)
+     * @param include include=cards - добавить карты при выборе полей
      * @return данные текущего пользователя
      */
     @GetMapping("/self")
-    public ResponseEntity<UserDto> getSelfUser(Authentication authentication) {
+    public ResponseEntity<Object> getSelfUser(
+            AuthenticatedUser currentUser,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String include) {
         log.info("Getting user data from token");
+        UserFields shape = UserFields.parse(fields, include);
         
         // Извлекаем email из JWT токена
-        String email = SecurityUtils.getEmailFromToken(authentication);
+        String email = currentUser.getEmail();
         log.debug("Extracted email from token: {}", email);
+
+        if (UserFields.FULL.equals(shape)) {
+            Optional<CachedUserJson> cached = userJsonCache.findByEmail(email);
+            if (cached.isPresent()) {
+                return cachedResponse(cached.get(), currentUser);
+            }
+        }
         
-        // Получаем пользователя по email
-        UserDto userDto = userService.getUserByEmail(email);
-        return ResponseEntity.ok(userDto);
+        // Получаем пользователя по email (без карт - проекцией, только колонки users)
+        UserDto userDto = shape.cards() ? userService.getUserByEmail(email) : userService.getUserSummaryByEmail(email);
+        return render(shape, userDto);
     }
 
     /**
@@ -57,17 +86,17 @@ public class UserController {
      * Пользователь должен быть зарегистрирован в auth-service и иметь валидный JWT токен.
      * 
      * @param request данные пользователя (firstName, lastName, birthDate)
-     * @param authentication объект аутентификации, содержащий JWT токен
+     * @param currentUser контекст текущего пользователя из JWT токена
      * @return созданный пользователь
      */
     @PostMapping("/createUser")
     public ResponseEntity<UserDto> createUserFromToken(
             @Valid @RequestBody CreateUserFromTokenRequest request,
-            Authentication authentication) {
+            AuthenticatedUser currentUser) {
         log.info("Creating user from token for authenticated user");
         
         // Извлекаем email из JWT токена
-        String email = SecurityUtils.getEmailFromToken(authentication);
+        String email = currentUser.getEmail();
         log.debug("Extracted email from token: {}", email);
         
         // Создаем пользователя с email из токена
@@ -85,30 +114,84 @@ public class UserController {
      * Получение пользователя по ID.
      * ADMIN: может получить любого пользователя.
      * USER: может получить только свою информацию.
+     * Ответ содержит ETag: при совпадении с If-None-Match возвращается 304 без тела.
+     * Полное представление (без fields/include) отдается готовым JSON из users_json, если он там есть:
+     * доступ проверяется по email, сохраненному рядом с телом.
      */
     @GetMapping("/id")
-    public ResponseEntity<UserDto> getUserById(
+    public ResponseEntity<Object> getUserById(
             @RequestParam Long id,
-            Authentication authentication) {
-        UserDto user = userService.findUserById(id);
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String include,
+            AuthenticatedUser currentUser) {
+        UserFields shape = UserFields.parse(fields, include);
+        if (UserFields.FULL.equals(shape)) {
+            Optional<CachedUserJson> cached = userJsonCache.findById(id);
+            if (cached.isPresent()) {
+                return cachedResponse(cached.get(), currentUser);
+            }
+        }
+        UserDto user = shape.cards() ? userService.findUserById(id) : userService.findUserSummaryById(id);
         
         // Проверка доступа: USER может получить только свою информацию
-        if (!SecurityUtils.hasAccess(authentication, user.getEmail())) {
+        if (!currentUser.canAccess(user.getEmail())) {
             throw new AccessDeniedException("Access denied: You can only access your own information");
         }
         
-        return ResponseEntity.ok(user);
+        return render(shape, user);
+    }
+
+    /**
+     * Ответ из готового JSON: тело не десериализуется и не сериализуется повторно.
+     */
+    private ResponseEntity<Object> cachedResponse(CachedUserJson json, AuthenticatedUser currentUser) {
+        if (!currentUser.canAccess(json.email())) {
+            throw new AccessDeniedException("Access denied: You can only access your own information");
+        }
+        return EntityTag.ok(json, json.etag());
+    }
+
+    /**
+     * Полное представление сериализуется один раз: JSON сохраняется в users_json и отдается в ответ.
+     */
+    private ResponseEntity<Object> render(UserFields shape, UserDto user) {
+        if (UserFields.FULL.equals(shape)) {
+            Optional<CachedUserJson> json = userJsonCache.put(user);
+            if (json.isPresent()) {
+                return EntityTag.ok(json.get(), json.get().etag());
+            }
+        }
+        return EntityTag.ok(shape.render(user), EntityTag.of(user));
     }
 
     /**
      * Получение списка всех пользователей.
      * Доступно только для ADMIN (ограничение в SecurityConfig).
+     * Страница без карт (fields/include без cards) строится проекцией и не загружает карты.
+     * size больше api.pagination.max-size - 400.
      */
     @GetMapping
-    public ResponseEntity<PagedUserResponse> getUsers(
+    public ResponseEntity<Object> getUsers(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "5") int size) {
-        return ResponseEntity.ok(userService.findAllUsers(page, size));
+            @RequestParam(defaultValue = "5") int size,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String include) {
+        pageSizeGuard.check(page, size);
+        UserFields shape = UserFields.parse(fields, include);
+        PagedUserResponse users = shape.cards()
+                ? userService.findAllUsers(page, size)
+                : userService.findAllUserSummaries(page, size);
+        return ResponseEntity.ok(shape.render(users));
+    }
+
+    /**
+     * Выгрузка всех пользователей с картами в NDJSON (один пользователь на строку, по возрастанию id).
+     * Доступно только для ADMIN (ограничение в SecurityConfig). Пользователи читаются из БД курсором
+     * и пишутся в ответ по мере чтения: память сервиса не зависит от числа пользователей.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        return NdjsonResponse.of(objectMapper, userService::streamAllUsers);
     }
 
     /**
@@ -117,22 +200,38 @@ public class UserController {
      * USER: может получить только свою информацию.
      */
     @GetMapping("/email")
-    public ResponseEntity<UserDto> getUserByEmail(
+    public ResponseEntity<Object> getUserByEmail(
             @RequestParam String email,
-            Authentication authentication) {
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String include,
+            AuthenticatedUser currentUser) {
+        UserFields shape = UserFields.parse(fields, include);
         // Проверка доступа ДО получения пользователя из базы
         // USER может запрашивать только свой email
-        if (!SecurityUtils.isAdmin(authentication)) {
-            String userEmail = SecurityUtils.getEmailFromToken(authentication);
+        if (!currentUser.isAdmin()) {
+            String userEmail = currentUser.getEmail();
             if (!userEmail.equals(email)) {
                 throw new AccessDeniedException("Access denied: You can only access your own information");
             }
         }
         
         // Получаем пользователя из базы только после проверки доступа
-        UserDto user = userService.getUserByEmail(email);
+        UserDto user = shape.cards() ? userService.getUserByEmail(email) : userService.getUserSummaryByEmail(email);
         
-        return ResponseEntity.ok(user);
+        return ResponseEntity.ok(shape.render(user));
+    }
+
+    /**
+     * Пакетное получение пользователей по списку id и/или email (до 100 каждого).
+     * ADMIN: получает всех найденных пользователей.
+     * USER: получает только себя, остальные элементы возвращаются в missingIds/missingEmails
+     * (как несуществующие), без ошибки на весь запрос.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<UserBatchResponse> getUsersBatch(
+            @Valid @RequestBody UserBatchRequest request,
+            AuthenticatedUser currentUser) {
+        return ResponseEntity.ok(userService.findUsersBatch(request, currentUser));
     }
 
     /**
@@ -144,11 +243,11 @@ public class UserController {
     @PutMapping("/me")
     public ResponseEntity<UserDto> updateCurrentUser(
             @RequestBody UpdateUserDto dto,
-            Authentication authentication) {
+            AuthenticatedUser currentUser) {
         // Извлекаем email из токена
         String userEmail;
         try {
-            userEmail = SecurityUtils.getEmailFromToken(authentication);
+            userEmail = currentUser.getEmail();
         } catch (IllegalStateException e) {
             throw new AccessDeniedException("Access denied: Authentication required.");
         }
@@ -167,9 +266,9 @@ public class UserController {
     public ResponseEntity<UserDto> updateUser(
             @PathVariable Long id,
             @RequestBody UpdateUserDto dto,
-            Authentication authentication) {
+            AuthenticatedUser currentUser) {
         // Проверка доступа: только ADMIN может обновлять пользователей по ID
-        if (!SecurityUtils.isAdmin(authentication)) {
+        if (!currentUser.isAdmin()) {
             throw new AccessDeniedException("Access denied: Only administrators can update users by ID. " +
                     "Use PUT /api/v1/users/me to update your own profile.");
         }
@@ -177,7 +276,7 @@ public class UserController {
         // Извлекаем email админа для логирования
         String adminEmail;
         try {
-            adminEmail = SecurityUtils.getEmailFromToken(authentication);
+            adminEmail = currentUser.getEmail();
         } catch (IllegalStateException e) {
             throw new AccessDeniedException("Access denied: Authentication required.");
         }
@@ -194,23 +293,18 @@ public class UserController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteUser(
             @PathVariable Long id,
-            Authentication authentication) {
-        log.info("Delete user request received for user ID: {} by user: {}", id, 
-                authentication != null ? SecurityUtils.getEmailFromToken(authentication) : "unknown");
+            AuthenticatedUser currentUser) {
+        log.info("Delete user request received for user ID: {} by user: {}", id, currentUser.getIdentifier());
         
         // Проверка доступа: только ADMIN может удалять пользователей
-        if (!SecurityUtils.isAdmin(authentication)) {
-            log.warn("Access denied: User {} attempted to delete user ID: {}", 
-                    SecurityUtils.getEmailFromToken(authentication), id);
+        if (!currentUser.isAdmin()) {
+            log.warn("Access denied: User {} attempted to delete user ID: {}", currentUser.getIdentifier(), id);
             throw new AccessDeniedException("Access denied: Only administrators can delete users");
         }
         
-        log.info("Admin user {} is deleting user ID: {}", SecurityUtils.getEmailFromToken(authentication), id);
-        
-        // Проверяем, что пользователь существует и получаем email для синхронизации
-        UserDto userToDelete = userService.findUserById(id);
-        log.info("User to delete found: {} (email: {})", id, userToDelete.getEmail());
+        log.info("Admin user {} is deleting user ID: {}", currentUser.getIdentifier(), id);
         
+        // Пользователь загружается один раз в сервисе (UserNotFoundException, если его нет)
         userService.deleteUser(id);
         log.info("User ID: {} successfully deleted from user-service", id);
         
@@ -0,0 +1,25 @@
+package com.innowise.demo.dto;
+
+import java.util.List;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Запрос пакетного получения карт по списку id.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardBatchRequest {
+
+    public static final int MAX_ITEMS = 100;
+
+    @NotEmpty(message = "At least one id is required")
+    @Size(max = MAX_ITEMS, message = "No more than " + MAX_ITEMS + " ids per request")
+    private List<@NotNull(message = "Id must not be null") Long> ids;
+}
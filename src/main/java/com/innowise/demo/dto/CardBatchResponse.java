@@ -0,0 +1,19 @@
+package com.innowise.demo.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Результат пакетного получения карт.
+ * cards - найденные карты в порядке запроса; missingIds - не найденные или чужие для USER.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardBatchResponse {
+    private List<CardInfoDto> cards;
+    private List<Long> missingIds;
+}
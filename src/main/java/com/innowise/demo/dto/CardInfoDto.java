@@ -30,4 +30,7 @@ public class CardInfoDto {
     @NotNull(message = "Expiration date is required")
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
     private LocalDate expirationDate;
+
+    // Версия строки card_info: хранится в кэше вместе с DTO, из нее строится ETag (EntityTag)
+    private Long version;
 }
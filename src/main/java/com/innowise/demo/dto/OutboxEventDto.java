@@ -0,0 +1,21 @@
+package com.innowise.demo.dto;
+
+import java.time.Instant;
+
+import com.innowise.demo.model.OutboxEventType;
+import com.innowise.demo.model.OutboxStatus;
+
+import lombok.Data;
+
+@Data
+public class OutboxEventDto {
+    private Long id;
+    private OutboxEventType eventType;
+    private String payload;
+    private OutboxStatus status;
+    private int attempts;
+    private Instant nextAttemptAt;
+    private String lastError;
+    private Instant createdAt;
+    private Instant processedAt;
+}
@@ -0,0 +1,36 @@
+package com.innowise.demo.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Запрос пакетного получения пользователей: по списку id и/или по списку email.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserBatchRequest {
+
+    public static final int MAX_ITEMS = 100;
+
+    @Size(max = MAX_ITEMS, message = "No more than " + MAX_ITEMS + " ids per request")
+    private List<@NotNull(message = "Id must not be null") Long> ids = new ArrayList<>();
+
+    @Size(max = MAX_ITEMS, message = "No more than " + MAX_ITEMS + " emails per request")
+    private List<@NotNull(message = "Email must not be null") String> emails = new ArrayList<>();
+
+    @JsonIgnore
+    @AssertTrue(message = "At least one id or email is required")
+    public boolean isNotEmpty() {
+        return (ids != null && !ids.isEmpty()) || (emails != null && !emails.isEmpty());
+    }
+}
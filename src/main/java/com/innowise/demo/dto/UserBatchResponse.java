@@ -0,0 +1,21 @@
+package com.innowise.demo.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Результат пакетного получения пользователей.
+ * users - найденные пользователи в порядке запроса (сначала по ids, затем по emails, без повторов);
+ * missingIds/missingEmails - не найденные или недоступные текущему пользователю.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserBatchResponse {
+    private List<UserDto> users;
+    private List<Long> missingIds;
+    private List<String> missingEmails;
+}
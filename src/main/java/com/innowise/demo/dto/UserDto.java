@@ -39,5 +39,8 @@ public class UserDto {
 
     @Valid // для вложенной валидации карт
     private List<CardInfoDto> cards;
+
+    // Версия строки users: хранится в кэше вместе с DTO, из нее строится ETag (EntityTag)
+    private Long version;
 }
 
@@ -0,0 +1,127 @@
+package com.innowise.demo.dto;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ser.PropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.innowise.demo.exception.InvalidRequestException;
+
+/**
+ * Форма ответа с пользователем, заданная параметрами запроса fields и include.
+ *
+ * fields - поля UserDto через запятую, include=cards - добавить карты.
+ * Без обоих параметров возвращается полное представление с картами (как раньше).
+ * Если задан хотя бы один параметр, карты загружаются и сериализуются только при include=cards
+ * или cards в fields: без карт пользователь читается проекцией (только колонки users)
+ * и кэшируется отдельно (см. UserService.findUserSummaryById).
+ *
+ * @param fields выбранные поля (null - все поля)
+ * @param cards  нужны ли карты
+ */
+public record UserFields(Set<String> fields, boolean cards) {
+
+    private static final String CARDS = "cards";
+    private static final Set<String> ALLOWED_FIELDS =
+            Set.of("id", "firstName", "lastName", "birthDate", "email", "version", CARDS);
+
+    public static final UserFields FULL = new UserFields(null, true);
+
+    public static UserFields parse(String fields, String include) {
+        if (fields == null && include == null) {
+            return FULL;
+        }
+
+        Set<String> includes = split(include);
+        for (String name : includes) {
+            if (!CARDS.equals(name)) {
+                throw new InvalidRequestException("Unknown include: " + name + ". Supported: " + CARDS);
+            }
+        }
+        boolean cards = includes.contains(CARDS);
+
+        if (fields == null) {
+            return new UserFields(null, cards);
+        }
+        Set<String> selected = split(fields);
+        for (String name : selected) {
+            if (!ALLOWED_FIELDS.contains(name)) {
+                throw new InvalidRequestException("Unknown field: " + name + ". Supported: " + ALLOWED_FIELDS);
+            }
+        }
+        if (selected.contains(CARDS)) {
+            cards = true;
+        } else if (cards) {
+            selected.add(CARDS);
+        }
+        return new UserFields(selected, cards);
+    }
+
+    /**
+     * Тело ответа: сам DTO для полного представления, иначе DTO с фильтром полей.
+     */
+    public Object render(UserDto user) {
+        if (isUnfiltered()) {
+            return user;
+        }
+        return filtered(FilteredUserDto.of(user));
+    }
+
+    public Object render(PagedUserResponse page) {
+        if (isUnfiltered()) {
+            return page;
+        }
+        return filtered(new PagedUserResponse(
+                page.getContent().stream().<UserDto>map(FilteredUserDto::of).toList(),
+                page.getPage(),
+                page.getSize(),
+                page.getTotalElements(),
+                page.getTotalPages()));
+    }
+
+    private boolean isUnfiltered() {
+        return fields == null && cards;
+    }
+
+    private MappingJacksonValue filtered(Object body) {
+        PropertyFilter filter = fields != null
+                ? SimpleBeanPropertyFilter.filterOutAllExcept(fields)
+                : SimpleBeanPropertyFilter.serializeAllExcept(CARDS);
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        value.setFilters(new SimpleFilterProvider().addFilter(FilteredUserDto.FILTER_ID, filter));
+        return value;
+    }
+
+    private static Set<String> split(String value) {
+        if (value == null) {
+            return new LinkedHashSet<>();
+        }
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Копия UserDto только для ответа с выбранными полями. Фильтр объявлен на подклассе,
+     * поэтому остальные сериализаторы UserDto (кэш Redis, ObjectMapper без FilterProvider) его не требуют.
+     */
+    @JsonFilter(FilteredUserDto.FILTER_ID)
+    static final class FilteredUserDto extends UserDto {
+
+        static final String FILTER_ID = "userFields";
+
+        static FilteredUserDto of(UserDto source) {
+            FilteredUserDto copy = new FilteredUserDto();
+            BeanUtils.copyProperties(source, copy);
+            return copy;
+        }
+    }
+}
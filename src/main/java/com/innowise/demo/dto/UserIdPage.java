@@ -0,0 +1,23 @@
+package com.innowise.demo.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Страница пользователей в кэше в виде списка id (см. UserPageCache).
+ * Сами пользователи читаются из кэша users, поэтому их данные не дублируются в каждой странице.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserIdPage {
+    private List<Long> ids = new ArrayList<>();
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+}
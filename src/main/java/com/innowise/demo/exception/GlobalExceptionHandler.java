@@ -1,6 +1,9 @@
 package com.innowise.demo.exception;
 
+import java.util.concurrent.RejectedExecutionException;
+
 import org.apache.coyote.BadRequestException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -37,6 +40,14 @@ public class GlobalExceptionHandler {
         return buildErrorResponse("CARD_ALREADY_EXISTS", ex.getMessage(), HttpStatus.CONFLICT);
     }
 
+    // ================= Concurrent Modification =================
+    // Строка изменена другим запросом после чтения (@Version): клиент должен перечитать ресурс и повторить
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLocking(OptimisticLockingFailureException ex) {
+        return buildErrorResponse("CONCURRENT_MODIFICATION",
+                "Resource was modified by another request, reload it and retry", HttpStatus.CONFLICT);
+    }
+
     // ================= Validation & Bad Request =================
     @ExceptionHandler(InvalidRequestException.class)
     public ResponseEntity<ErrorResponse> handleInvalidRequest(InvalidRequestException ex) {
@@ -87,6 +98,13 @@ public class GlobalExceptionHandler {
         return buildErrorResponse("ACCESS_DENIED", ex.getMessage(), HttpStatus.FORBIDDEN);
     }
 
+    // ================= Service Unavailable =================
+    // Очередь ограниченного пула переполнена (например, промахи кэша в ReactiveReadController)
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ErrorResponse> handleRejectedExecution(RejectedExecutionException ex) {
+        return buildErrorResponse("SERVICE_UNAVAILABLE", "Service is overloaded, retry later", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(IllegalStateException.class)
     public ResponseEntity<ErrorResponse> handleIllegalState(IllegalStateException ex) {
         // Если это ошибка связанная с отсутствием email в токене, возвращаем 403
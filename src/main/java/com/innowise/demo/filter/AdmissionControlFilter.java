@@ -0,0 +1,113 @@
+package com.innowise.demo.filter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Допуск запросов по адаптивному лимиту (AimdConcurrencyLimiter) с учетом приоритета.
+ *
+ * Фильтр стоит перед Spring Security: отклоненный запрос не проверяет JWT и не занимает
+ * ресурсы сервиса, а сразу получает 503 с Retry-After. Место асинхронного запроса
+ * (Mono, StreamingResponseBody) освобождается по завершении асинхронной обработки;
+ * время таких запросов в подстройке лимита не учитывается. Эндпоинты actuator не ограничиваются.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionControlFilter.class);
+    private static final byte[] REJECTED_BODY =
+            "{\"code\":\"SERVICE_UNAVAILABLE\",\"message\":\"Service is overloaded, retry later\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    private final AimdConcurrencyLimiter limiter;
+    private final String retryAfterSeconds;
+    private final MeterRegistry meterRegistry;
+
+    public AdmissionControlFilter(AimdConcurrencyLimiter limiter, Duration retryAfter, MeterRegistry meterRegistry) {
+        this.limiter = limiter;
+        this.retryAfterSeconds = String.valueOf(Math.max(1, retryAfter.toSeconds()));
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestPriority priority = RequestPriority.of(request);
+        if (!limiter.tryAcquire(priority.share())) {
+            reject(response, priority);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnComplete(start));
+            } else {
+                limiter.release(System.nanoTime() - start, true);
+            }
+        }
+    }
+
+    private void reject(HttpServletResponse response, RequestPriority priority) throws IOException {
+        meterRegistry.counter("admission.rejected", "priority", priority.name()).increment();
+        log.debug("Request rejected: priority {}, limit {}, in flight {}",
+                priority, limiter.getLimit(), limiter.getInFlight());
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(REJECTED_BODY.length);
+        response.getOutputStream().write(REJECTED_BODY);
+    }
+
+    private final class ReleaseOnComplete implements AsyncListener {
+
+        private final long start;
+
+        private ReleaseOnComplete(long start) {
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limiter.release(System.nanoTime() - start, false);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // onComplete вызывается и после тайм-аута
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // onComplete вызывается и после ошибки
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Повторный startAsync заменяет слушателей: добавляем себя снова, чтобы освободить место
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.innowise.demo.filter;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Адаптивный лимит одновременных запросов (AIMD: additive increase, multiplicative decrease).
+ *
+ * Лимит подстраивается по времени обработки завершившихся запросов: запрос быстрее
+ * latencyThreshold увеличивает лимит на 1 (если лимит используется хотя бы наполовину),
+ * более медленный уменьшает его в backoffRatio раз. При перегрузке (растут очереди к БД,
+ * Redis, пулу соединений) лимит снижается, и лишние запросы отклоняются сразу, а не ждут
+ * в очереди Tomcat до тайм-аута клиента.
+ *
+ * Доля лимита для запроса задается его приоритетом (см. RequestPriority): при росте нагрузки
+ * первыми отклоняются запросы с меньшей долей.
+ */
+public class AimdConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // double в виде Double.doubleToLongBits: лимит меняется CAS без блокировки (adjust вызывается
+    // при завершении каждого запроса, synchronized сериализовал бы их и закреплял виртуальные потоки)
+    private final AtomicLong limitBits = new AtomicLong();
+
+    public AimdConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                  Duration latencyThreshold, double backoffRatio) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Expected 1 <= min-limit <= initial-limit <= max-limit");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("backoff-ratio must be in (0, 1)");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.limitBits.set(Double.doubleToLongBits(initialLimit));
+    }
+
+    /**
+     * Занимает место для запроса, если занято меньше share от текущего лимита.
+     *
+     * @return true - запрос допущен, после обработки обязателен {@link #release}
+     */
+    public boolean tryAcquire(double share) {
+        int allowed = Math.max(1, (int) (limit() * share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Освобождает место запроса.
+     *
+     * @param latencyNanos время обработки запроса
+     * @param sampled      учитывать ли время при подстройке лимита (false для долгих по природе
+     *                     запросов, например потоковой выгрузки)
+     */
+    public void release(long latencyNanos, boolean sampled) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        if (sampled) {
+            adjust(latencyNanos, inFlightBefore);
+        }
+    }
+
+    private void adjust(long latencyNanos, int inFlightBefore) {
+        while (true) {
+            long currentBits = limitBits.get();
+            double current = Double.longBitsToDouble(currentBits);
+            double next;
+            if (latencyNanos > latencyThresholdNanos) {
+                next = Math.max(minLimit, current * backoffRatio);
+            } else if (inFlightBefore * 2 >= current) {
+                // Без нагрузки лимит не растет: иначе после простоя он был бы равен max-limit
+                next = Math.min(maxLimit, current + 1);
+            } else {
+                return;
+            }
+            if (next == current || limitBits.compareAndSet(currentBits, Double.doubleToLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    private double limit() {
+        return Double.longBitsToDouble(limitBits.get());
+    }
+
+    public int getLimit() {
+        return (int) limit();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,43 @@
+package com.innowise.demo.filter;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Приоритет запроса при ограничении нагрузки: доля адаптивного лимита, доступная запросу.
+ *
+ * HIGH - частые короткие чтения (/self, карта по id, неблокирующие чтения) получают весь лимит;
+ * LOW - списки пользователей и карт (для администратора - полные), потоковые выгрузки, пакетные запросы и служебные эндпоинты
+ * отклоняются первыми, когда занято больше половины лимита.
+ */
+public enum RequestPriority {
+    HIGH(1.0),
+    NORMAL(0.8),
+    LOW(0.5);
+
+    private final double share;
+
+    RequestPriority(double share) {
+        this.share = share;
+    }
+
+    public double share() {
+        return share;
+    }
+
+    public static RequestPriority of(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        boolean get = "GET".equals(request.getMethod());
+
+        if (path.endsWith("/stream") || path.endsWith("/batch")
+                || path.startsWith("/api/v1/admin/") || path.startsWith("/api/cache/")
+                || (get && (path.equals("/api/v1/users") || path.equals("/api/v1/cards")))) {
+            return LOW;
+        }
+        if (get && (path.equals("/api/v1/users/self")
+                || path.startsWith("/api/v1/reactive/")
+                || path.startsWith("/api/v1/cards/"))) {
+            return HIGH;
+        }
+        return NORMAL;
+    }
+}
@@ -0,0 +1,11 @@
+package com.innowise.demo.mapper;
+
+import org.mapstruct.Mapper;
+import com.innowise.demo.dto.OutboxEventDto;
+import com.innowise.demo.model.OutboxEvent;
+
+@Mapper(componentModel = "spring")
+public interface OutboxEventMapper {
+
+    OutboxEventDto toDto(OutboxEvent entity);
+}
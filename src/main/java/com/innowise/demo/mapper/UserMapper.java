@@ -13,16 +13,22 @@ import com.innowise.demo.dto.CardInfoDto;
 import com.innowise.demo.dto.UserDto;
 import com.innowise.demo.model.CardInfo;
 import com.innowise.demo.model.User;
+import com.innowise.demo.repository.UserSummary;
 
 @Mapper(componentModel = "spring", uses = {CardInfoMapper.class})
 public interface UserMapper {
 
+	// Версия присваивается только Hibernate: версия от клиента сделала бы новую сущность "существующей"
 	@Mapping(target = "cards", source = "cards")
+	@Mapping(target = "version", ignore = true)
 	User toEntity(UserDto dto);
 
 	@Mapping(target = "cards", source = "cards")
 	UserDto toDto(User user);
 
+	@Mapping(target = "cards", ignore = true)
+	UserDto toDto(UserSummary summary);
+
 	/**
 	 * Обновление списка карт без зависимости от других мапперов.
 	 */
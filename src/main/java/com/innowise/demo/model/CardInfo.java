@@ -11,6 +11,7 @@ import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
 
@@ -44,6 +45,10 @@ public class CardInfo {
     @Column(name = "expiration_date")
     private LocalDate expirationDate;
 
+    // Увеличивается Hibernate при каждом изменении строки, входит в ETag
+    @Version
+    private Long version;
+
     public User getUser() {
         return user;
     }
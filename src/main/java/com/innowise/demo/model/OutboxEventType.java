@@ -0,0 +1,9 @@
+package com.innowise.demo.model;
+
+/**
+ * Типы событий синхронизации с authentication-service.
+ */
+public enum OutboxEventType {
+    /** Пользователь удален из user-service, payload - email. */
+    USER_DELETED
+}
@@ -0,0 +1,13 @@
+package com.innowise.demo.model;
+
+/**
+ * Состояние события в outbox.
+ */
+public enum OutboxStatus {
+    /** Ожидает доставки (в том числе повторной после ошибки). */
+    PENDING,
+    /** Доставлено. */
+    SENT,
+    /** Исчерпаны попытки доставки, нужен ручной повтор. */
+    FAILED
+}
@@ -12,6 +12,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.NamedQuery;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 
@@ -47,6 +48,10 @@ public class User {
     @Column(unique = true, nullable = false)
     private String email;
 
+    // Увеличивается Hibernate при каждом изменении строки, входит в ETag
+    @Version
+    private Long version;
+
     @OneToMany(mappedBy = "user",
             cascade = CascadeType.ALL)//,
     // orphanRemoval = true)
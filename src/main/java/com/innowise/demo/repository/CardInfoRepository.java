@@ -1,11 +1,17 @@
 package com.innowise.demo.repository;
 
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import com.innowise.demo.model.CardInfo;
 
@@ -22,6 +28,13 @@ public interface CardInfoRepository extends JpaRepository<CardInfo, Long> {
     @Query("SELECT c FROM CardInfo c WHERE c.number = :number AND c.user.id = :userId")
     Optional<CardInfo> findByNumberAndUserId(@Param("number") String number, @Param("userId") Long userId);
 
+    /**
+     * Находит карту по ID только среди карт указанного владельца.
+     * Используется для USER: проверка доступа выполняется тем же запросом (по индексам id и user_id).
+     */
+    @Query("SELECT c FROM CardInfo c WHERE c.id = :id AND c.user.id = :userId")
+    Optional<CardInfo> findByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
     /**
      * Находит карту по номеру (независимо от пользователя).
      * Используется для проверки, не принадлежит ли карта другому пользователю.
@@ -35,4 +48,25 @@ public interface CardInfoRepository extends JpaRepository<CardInfo, Long> {
      */
     @Query("SELECT c FROM CardInfo c WHERE LOWER(c.user.email) = LOWER(:email)")
     Page<CardInfo> findAllByUser_EmailIgnoreCase(@Param("email") String email, Pageable pageable);
+
+    /**
+     * Все карты курсором (порциями по fetch size), только для чтения.
+     * Вызывать в транзакции и закрывать Stream.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT c FROM CardInfo c ORDER BY c.id")
+    Stream<CardInfo> streamAll();
+
+    /**
+     * Карты пользователя по email (без учета регистра) курсором, только для чтения.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT c FROM CardInfo c WHERE LOWER(c.user.email) = LOWER(:email) ORDER BY c.id")
+    Stream<CardInfo> streamAllByUserEmailIgnoreCase(@Param("email") String email);
 }
@@ -0,0 +1,70 @@
+package com.innowise.demo.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.innowise.demo.model.OutboxEvent;
+import com.innowise.demo.model.OutboxStatus;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Блокирует пачку PENDING событий, готовых к доставке.
+     * SKIP LOCKED: несколько экземпляров сервиса разбирают разные события, не ожидая друг друга.
+     */
+    @Query(value = "SELECT * FROM public.outbox_event " +
+            "WHERE status = 'PENDING' AND next_attempt_at <= :now " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<OutboxEvent> lockDueEvents(@Param("now") Instant now, @Param("limit") int limit);
+
+    /**
+     * Захватывает события на время доставки (lease): до leaseUntil их не выберет другой экземпляр,
+     * а при падении экземпляра они снова станут доступны после истечения lease.
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.attempts = e.attempts + 1, e.nextAttemptAt = :leaseUntil " +
+            "WHERE e.id IN :ids")
+    int claim(@Param("ids") Collection<Long> ids, @Param("leaseUntil") Instant leaseUntil);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = com.innowise.demo.model.OutboxStatus.SENT, " +
+            "e.processedAt = :now, e.lastError = null WHERE e.id IN :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = :status, e.nextAttemptAt = :nextAttemptAt, " +
+            "e.lastError = :lastError WHERE e.id = :id")
+    int markAttemptFailed(@Param("id") Long id,
+                          @Param("status") OutboxStatus status,
+                          @Param("nextAttemptAt") Instant nextAttemptAt,
+                          @Param("lastError") String lastError);
+
+    /**
+     * Откладывает событие без расходования попытки (вызов не выполнялся: circuit breaker разомкнут).
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.attempts = e.attempts - 1, e.nextAttemptAt = :nextAttemptAt " +
+            "WHERE e.id = :id")
+    int defer(@Param("id") Long id, @Param("nextAttemptAt") Instant nextAttemptAt);
+
+    Page<OutboxEvent> findByStatus(OutboxStatus status, Pageable pageable);
+
+    @Query("SELECT e.status, COUNT(e) FROM OutboxEvent e GROUP BY e.status")
+    List<Object[]> countByStatus();
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.status = com.innowise.demo.model.OutboxStatus.SENT " +
+            "AND e.processedAt < :before")
+    int deleteSentBefore(@Param("before") Instant before);
+}
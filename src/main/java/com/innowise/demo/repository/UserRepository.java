@@ -1,12 +1,19 @@
 package com.innowise.demo.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import com.innowise.demo.model.User;
 
@@ -27,8 +34,41 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query(value = "SELECT * from public.users u where u.email = :email", nativeQuery=true)
     Optional<User> findByEmailNativeQuery(@Param("email") String email);
 
+    /**
+     * Возвращает только id пользователя по email (точное совпадение), без загрузки сущности.
+     * Используется для проверки владельца ресурса (см. UserIdResolver).
+     */
+    @Query("SELECT u.id FROM User u WHERE u.email = :email")
+    Optional<Long> findIdByEmail(@Param("email") String email);
+
     //для решения проблемы ленивой инициализации:
     Page<User> findAll(Pageable pageable);
 
+    /**
+     * Страница пользователей без карт (только колонки users).
+     */
+    Page<UserSummary> findAllProjectedBy(Pageable pageable);
+
+    Optional<UserSummary> findSummaryById(Long id);
+
+    Optional<UserSummary> findSummaryByEmail(String email);
+
+    /**
+     * Пользователи с картами по списку id одним запросом (IN + join fetch, без N+1).
+     * Используется для промахов кэша при пакетном получении.
+     */
+    @Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.cards WHERE u.id IN :ids")
+    List<User> findAllWithCardsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.cards WHERE u.email IN :emails")
+    List<User> findAllWithCardsByEmailIn(@Param("emails") Collection<String> emails);
+
+    /**
+     * Id всех пользователей по возрастанию, курсором: драйвер получает строки порциями по fetch size.
+     * Вызывать в транзакции (иначе PostgreSQL вернет весь результат сразу) и закрывать Stream.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT u.id FROM User u ORDER BY u.id")
+    Stream<Long> streamAllIds();
 
 }
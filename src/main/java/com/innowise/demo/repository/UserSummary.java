@@ -0,0 +1,22 @@
+package com.innowise.demo.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Проекция пользователя без карт: Spring Data выбирает только перечисленные колонки users,
+ * коллекция cards не загружается.
+ */
+public interface UserSummary {
+
+    Long getId();
+
+    String getFirstName();
+
+    String getLastName();
+
+    LocalDate getBirthDate();
+
+    String getEmail();
+
+    Long getVersion();
+}
@@ -0,0 +1,170 @@
+package com.innowise.demo.security;
+
+import java.util.Collection;
+
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+/**
+ * Неизменяемый контекст текущего пользователя, вычисляемый один раз на запрос.
+ *
+ * Создается конвертером JWT (см. {@link AuthenticatedUserConverter}) и хранится в
+ * {@link AuthenticatedUserToken}, поэтому email, идентификатор и роли не извлекаются
+ * из claims и authorities повторно. В контроллерах внедряется как параметр метода,
+ * в сервисах доступен через {@link #current()}.
+ *
+ * Единственное изменяемое поле - id пользователя в БД: он вычисляется лениво
+ * и запоминается при первом разрешении.
+ */
+public final class AuthenticatedUser {
+
+    public static final int ROLE_USER = 1;
+    public static final int ROLE_ADMIN = 1 << 1;
+
+    private final String email;
+    private final String identifier;
+    private final int roles;
+    private volatile Long userId;
+
+    private AuthenticatedUser(String email, String identifier, int roles) {
+        this.email = email;
+        this.identifier = identifier;
+        this.roles = roles;
+    }
+
+    /**
+     * Строит контекст из проверенного JWT и уже вычисленных authorities.
+     * Идентификатор: sub, затем email, затем preferred_username.
+     */
+    public static AuthenticatedUser of(Jwt jwt, Collection<? extends GrantedAuthority> authorities) {
+        String email = nonBlank(jwt.getSubject());
+        String identifier = email;
+        if (identifier == null) {
+            identifier = nonBlank(jwt.getClaimAsString("email"));
+        }
+        if (identifier == null) {
+            identifier = nonBlank(jwt.getClaimAsString("preferred_username"));
+        }
+        return new AuthenticatedUser(email, identifier, roleBits(authorities));
+    }
+
+    /**
+     * Возвращает контекст из Authentication. Для токенов, созданных конвертером,
+     * возвращается заранее вычисленный объект; для остальных типов аутентификации он строится на месте.
+     * Возвращает null, если аутентификации нет.
+     */
+    public static AuthenticatedUser from(Authentication authentication) {
+        if (authentication == null) {
+            return null;
+        }
+        if (authentication instanceof AuthenticatedUserToken token) {
+            return token.getAuthenticatedUser();
+        }
+        if (authentication instanceof JwtAuthenticationToken token) {
+            return of(token.getToken(), token.getAuthorities());
+        }
+        if (authentication.getPrincipal() instanceof Jwt jwt) {
+            return of(jwt, authentication.getAuthorities());
+        }
+
+        String identifier = authentication.getPrincipal() instanceof UserDetails userDetails
+                ? userDetails.getUsername()
+                : nonBlank(authentication.getName());
+        return new AuthenticatedUser(null, identifier, roleBits(authentication.getAuthorities()));
+    }
+
+    /**
+     * Контекст пользователя текущего запроса (для сервисов).
+     * Выбрасывает AccessDeniedException, если запрос не аутентифицирован.
+     */
+    public static AuthenticatedUser current() {
+        AuthenticatedUser user = from(SecurityContextHolder.getContext().getAuthentication());
+        if (user == null) {
+            throw new AccessDeniedException("Authentication required");
+        }
+        return user;
+    }
+
+    /**
+     * Email пользователя (claim "sub").
+     * Выбрасывает IllegalStateException, если токен не содержит email.
+     */
+    public String getEmail() {
+        if (email == null) {
+            throw new IllegalStateException("Email (sub claim) not found in JWT token");
+        }
+        return email;
+    }
+
+    /**
+     * Email (claim "sub") или null, если его нет в токене.
+     */
+    String emailOrNull() {
+        return email;
+    }
+
+    /**
+     * Идентификатор пользователя: email или его замена из других claims.
+     * Выбрасывает AccessDeniedException, если определить пользователя невозможно.
+     */
+    public String getIdentifier() {
+        if (identifier == null) {
+            throw new AccessDeniedException("Cannot determine current user");
+        }
+        return identifier;
+    }
+
+    public boolean hasRole(int role) {
+        return (roles & role) != 0;
+    }
+
+    public boolean isAdmin() {
+        return hasRole(ROLE_ADMIN);
+    }
+
+    /**
+     * ADMIN имеет доступ ко всем ресурсам, USER - только к своим: email владельца должен точно
+     * совпадать с claim "sub". Токен без sub доступа к чужим и своим ресурсам по email не дает.
+     */
+    public boolean canAccess(String resourceOwnerEmail) {
+        return isAdmin() || (email != null && email.equals(resourceOwnerEmail));
+    }
+
+    /**
+     * Id пользователя в БД, если он уже был разрешен в рамках запроса; иначе null.
+     */
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    private static int roleBits(Collection<? extends GrantedAuthority> authorities) {
+        int bits = 0;
+        for (GrantedAuthority authority : authorities) {
+            String value = authority.getAuthority();
+            if ("ROLE_ADMIN".equals(value)) {
+                bits |= ROLE_ADMIN;
+            } else if ("ROLE_USER".equals(value)) {
+                bits |= ROLE_USER;
+            }
+        }
+        return bits;
+    }
+
+    private static String nonBlank(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    @Override
+    public String toString() {
+        return "AuthenticatedUser{identifier=" + identifier + ", roles=" + roles + "}";
+    }
+}
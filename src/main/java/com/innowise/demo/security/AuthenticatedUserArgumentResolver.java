@@ -0,0 +1,39 @@
+package com.innowise.demo.security;
+
+import java.security.Principal;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Внедряет {@link AuthenticatedUser} в параметры методов контроллеров.
+ * Если запрос не аутентифицирован, выбрасывает AccessDeniedException.
+ */
+public class AuthenticatedUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return AuthenticatedUser.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Principal principal = webRequest.getUserPrincipal();
+        Authentication authentication = principal instanceof Authentication requestAuthentication
+                ? requestAuthentication
+                : SecurityContextHolder.getContext().getAuthentication();
+
+        AuthenticatedUser user = AuthenticatedUser.from(authentication);
+        if (user == null) {
+            throw new AccessDeniedException("Access denied: Authentication required.");
+        }
+        return user;
+    }
+}
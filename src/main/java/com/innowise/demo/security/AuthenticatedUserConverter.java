@@ -0,0 +1,26 @@
+package com.innowise.demo.security;
+
+import java.util.Collection;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+/**
+ * Конвертер JWT в {@link AuthenticatedUserToken}: authorities и контекст пользователя
+ * вычисляются один раз при аутентификации запроса.
+ */
+public class AuthenticatedUserConverter implements Converter<Jwt, AbstractAuthenticationToken> {
+
+    private final Converter<Jwt, Collection<GrantedAuthority>> authoritiesConverter;
+
+    public AuthenticatedUserConverter(Converter<Jwt, Collection<GrantedAuthority>> authoritiesConverter) {
+        this.authoritiesConverter = authoritiesConverter;
+    }
+
+    @Override
+    public AbstractAuthenticationToken convert(Jwt jwt) {
+        return new AuthenticatedUserToken(jwt, authoritiesConverter.convert(jwt), jwt.getSubject());
+    }
+}
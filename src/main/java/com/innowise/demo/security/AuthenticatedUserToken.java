@@ -0,0 +1,24 @@
+package com.innowise.demo.security;
+
+import java.util.Collection;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+/**
+ * JwtAuthenticationToken, который дополнительно хранит заранее вычисленный {@link AuthenticatedUser}.
+ */
+public class AuthenticatedUserToken extends JwtAuthenticationToken {
+
+    private final transient AuthenticatedUser authenticatedUser;
+
+    public AuthenticatedUserToken(Jwt jwt, Collection<? extends GrantedAuthority> authorities, String name) {
+        super(jwt, authorities, name);
+        this.authenticatedUser = AuthenticatedUser.of(jwt, getAuthorities());
+    }
+
+    public AuthenticatedUser getAuthenticatedUser() {
+        return authenticatedUser;
+    }
+}
@@ -0,0 +1,105 @@
+package com.innowise.demo.security;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.innowise.demo.util.TokenHash;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Декоратор {@link JwtDecoder}, кэширующий успешно проверенные токены.
+ * Клиенты переиспользуют один и тот же токен для сотен запросов, поэтому повторный
+ * разбор JSON и проверка подписи заменяются поиском в локальном кэше.
+ *
+ * Ключ кэша - 64-битный хэш исходной строки токена; при попадании токен сверяется
+ * с {@link Jwt#getTokenValue()}, поэтому коллизия хэша приводит лишь к повторной проверке.
+ * Запись живёт не дольше maxTtl и не дольше claim "exp" самого токена.
+ * Ошибки проверки не кэшируются.
+ */
+public class CachingJwtDecoder implements JwtDecoder, MeterBinder {
+
+    static final String CACHE_NAME = "jwt_decoder";
+
+    private final JwtDecoder delegate;
+    private final Cache<Long, Jwt> cache;
+
+    public CachingJwtDecoder(JwtDecoder delegate, long maximumSize, Duration maxTtl) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry(maxTtl))
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        if (token == null) {
+            return delegate.decode(null);
+        }
+
+        long key = TokenHash.of(token);
+        Jwt cached = cache.getIfPresent(key);
+        if (cached != null && token.equals(cached.getTokenValue())) {
+            return cached;
+        }
+
+        Jwt jwt = delegate.decode(token);
+        cache.put(key, jwt);
+        return jwt;
+    }
+
+    /**
+     * Сбрасывает кэш (например, после смены ключей подписи).
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Публикует метрики кэша (cache.gets с тегом result=hit/miss, cache.size, cache.evictions).
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Время жизни записи: min(maxTtl, exp - now). Для уже истёкших токенов - ноль.
+     */
+    private record TokenExpiry(Duration maxTtl) implements Expiry<Long, Jwt> {
+
+        @Override
+        public long expireAfterCreate(Long key, Jwt jwt, long currentTime) {
+            Instant expiresAt = jwt.getExpiresAt();
+            if (expiresAt == null) {
+                return maxTtl.toNanos();
+            }
+            Duration remaining = Duration.between(Instant.now(), expiresAt);
+            if (remaining.isNegative()) {
+                return 0L;
+            }
+            return (remaining.compareTo(maxTtl) < 0 ? remaining : maxTtl).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(Long key, Jwt jwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, jwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Long key, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.innowise.demo.security;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.RestOperations;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+
+/**
+ * Менеджер JWK set (публичных ключей Keycloak).
+ *
+ * - Ключи загружаются в фоне сразу после старта и затем обновляются по расписанию.
+ * - Декодирование читает неизменяемый снимок {@link JWKSet} через volatile-ссылку, без блокировок.
+ * - Если в токене пришел неизвестный kid, запускается внеплановое обновление
+ *   (не чаще minRefreshInterval, одновременно выполняется только одна загрузка).
+ * - Ошибка загрузки не отключает RSA навсегда: остается последний удачный снимок,
+ *   следующая попытка будет по расписанию или по неизвестному kid.
+ */
+public class JwkSetManager {
+
+    private static final Logger log = LoggerFactory.getLogger(JwkSetManager.class);
+
+    private final String jwkSetUri;
+    private final RestOperations restOperations;
+    private final Duration refreshInterval;
+    private final Duration minRefreshInterval;
+    private final Duration refreshTimeout;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jwks-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicReference<CompletableFuture<JWKSet>> inFlight = new AtomicReference<>();
+    private volatile JWKSet snapshot = new JWKSet();
+    private volatile long lastRefreshAttemptNanos;
+
+    public JwkSetManager(String jwkSetUri, RestOperations restOperations, Duration refreshInterval,
+                         Duration minRefreshInterval, Duration refreshTimeout) {
+        this.jwkSetUri = jwkSetUri;
+        this.restOperations = restOperations;
+        this.refreshInterval = refreshInterval;
+        this.minRefreshInterval = minRefreshInterval;
+        this.refreshTimeout = refreshTimeout;
+        this.lastRefreshAttemptNanos = System.nanoTime() - minRefreshInterval.toNanos();
+    }
+
+    /**
+     * Запускает фоновую предзагрузку и плановое обновление ключей. Не блокирует старт приложения.
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::refreshAsync, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Текущий снимок ключей.
+     */
+    public JWKSet getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Источник ключей для Nimbus: выбирает ключи из снимка, а при неизвестном kid
+     * один раз пытается обновить снимок.
+     */
+    public JWKSource<SecurityContext> jwkSource() {
+        return (selector, context) -> {
+            List<JWK> keys = selector.select(snapshot);
+            if (!keys.isEmpty() || !refreshOnUnknownKey(selector)) {
+                return keys;
+            }
+            return selector.select(snapshot);
+        };
+    }
+
+    /**
+     * Внеплановое обновление по неизвестному kid. Возвращает true, если снимок был обновлен.
+     */
+    private boolean refreshOnUnknownKey(JWKSelector selector) {
+        JWKMatcher matcher = selector.getMatcher();
+        if (System.nanoTime() - lastRefreshAttemptNanos < minRefreshInterval.toNanos() && inFlight.get() == null) {
+            log.debug("JWK with kid {} not found, refresh skipped (rate limited)", matcher.getKeyIDs());
+            return false;
+        }
+        log.debug("JWK with kid {} not found, refreshing JWK set", matcher.getKeyIDs());
+        try {
+            refreshAsync().get(refreshTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Загружает JWK set. Параллельные вызовы получают одну и ту же загрузку.
+     */
+    CompletableFuture<JWKSet> refreshAsync() {
+        CompletableFuture<JWKSet> existing = inFlight.get();
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<JWKSet> future = new CompletableFuture<>();
+        if (!inFlight.compareAndSet(null, future)) {
+            return inFlight.get();
+        }
+        lastRefreshAttemptNanos = System.nanoTime();
+        try {
+            scheduler.execute(() -> load(future));
+        } catch (RuntimeException e) {
+            // Планировщик остановлен (завершение приложения)
+            inFlight.set(null);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void load(CompletableFuture<JWKSet> future) {
+        // Слот загрузки освобождается до завершения future, чтобы следующий вызов начал новую загрузку
+        try {
+            String body = restOperations.getForObject(jwkSetUri, String.class);
+            JWKSet loaded = JWKSet.parse(body);
+            snapshot = loaded;
+            log.debug("JWK set loaded from {} ({} keys)", jwkSetUri, loaded.getKeys().size());
+            inFlight.set(null);
+            future.complete(loaded);
+        } catch (ParseException | RuntimeException e) {
+            log.warn("Could not load JWK set from {}. Keeping previous keys ({}). Error: {}",
+                    jwkSetUri, snapshot.getKeys().size(), e.getMessage());
+            inFlight.set(null);
+            future.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.innowise.demo.security;
+
+import java.text.ParseException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.crypto.SecretKey;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.MappedJwtClaimSetConverter;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.BadJOSEException;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWT;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.JWTParser;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import com.nimbusds.jwt.proc.JWTProcessor;
+
+/**
+ * {@link JwtDecoder}, который разбирает токен один раз, читает alg из JOSE заголовка
+ * и отдает уже разобранный {@link SignedJWT} нужному верификатору (HMAC или JWK/RSA).
+ *
+ * В отличие от схемы "сначала HMAC, при JwtException - RSA" токен Keycloak не проходит
+ * через заведомо неудачную проверку, не создается исключение со stack trace и нет второго разбора.
+ * Валидаторы (exp/nbf, issuer и т.д.) получают уже сконвертированные claims.
+ */
+public final class JwtAlgorithmDispatcher implements JwtDecoder {
+
+    private static final String DECODING_ERROR_MESSAGE_TEMPLATE = "An error occurred while attempting to decode the Jwt: %s";
+
+    private final Map<JWSAlgorithm, JWTProcessor<SecurityContext>> processors;
+    private final OAuth2TokenValidator<Jwt> validator;
+    private final Converter<Map<String, Object>, Map<String, Object>> claimSetConverter =
+            MappedJwtClaimSetConverter.withDefaults(Map.of());
+
+    private JwtAlgorithmDispatcher(Map<JWSAlgorithm, JWTProcessor<SecurityContext>> processors,
+                                   OAuth2TokenValidator<Jwt> validator) {
+        this.processors = Map.copyOf(processors);
+        this.validator = validator;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        SignedJWT signedJwt = parse(token);
+        JWSAlgorithm algorithm = signedJwt.getHeader().getAlgorithm();
+        JWTProcessor<SecurityContext> processor = processors.get(algorithm);
+        if (processor == null) {
+            throw new BadJwtException("Unsupported JWS algorithm: " + algorithm);
+        }
+
+        JWTClaimsSet claims = verify(processor, signedJwt);
+        Jwt jwt = Jwt.withTokenValue(token)
+                .headers(headers -> headers.putAll(new LinkedHashMap<>(signedJwt.getHeader().toJSONObject())))
+                .claims(values -> values.putAll(claimSetConverter.convert(claims.getClaims())))
+                .build();
+        return validate(jwt);
+    }
+
+    private static SignedJWT parse(String token) {
+        if (token == null) {
+            throw new BadJwtException("Token must not be null");
+        }
+        try {
+            JWT parsed = JWTParser.parse(token);
+            if (parsed instanceof SignedJWT signedJwt) {
+                return signedJwt;
+            }
+            throw new BadJwtException("Unsupported token type: only signed JWT (JWS) are accepted");
+        } catch (ParseException e) {
+            throw new BadJwtException(String.format(DECODING_ERROR_MESSAGE_TEMPLATE, e.getMessage()), e);
+        }
+    }
+
+    private static JWTClaimsSet verify(JWTProcessor<SecurityContext> processor, SignedJWT signedJwt) {
+        try {
+            return processor.process(signedJwt, null);
+        } catch (BadJOSEException e) {
+            throw new BadJwtException(String.format(DECODING_ERROR_MESSAGE_TEMPLATE, e.getMessage()), e);
+        } catch (JOSEException e) {
+            throw new JwtException(String.format(DECODING_ERROR_MESSAGE_TEMPLATE, e.getMessage()), e);
+        }
+    }
+
+    private Jwt validate(Jwt jwt) {
+        OAuth2TokenValidatorResult result = validator.validate(jwt);
+        if (result.hasErrors()) {
+            Collection<OAuth2Error> errors = result.getErrors();
+            String description = errors.stream()
+                    .map(OAuth2Error::getDescription)
+                    .filter(value -> value != null && !value.isBlank())
+                    .findFirst()
+                    .orElse("Unable to validate Jwt");
+            throw new JwtValidationException(String.format(DECODING_ERROR_MESSAGE_TEMPLATE, description), errors);
+        }
+        return jwt;
+    }
+
+    public static final class Builder {
+
+        private final Map<JWSAlgorithm, JWTProcessor<SecurityContext>> processors = new HashMap<>();
+        private OAuth2TokenValidator<Jwt> validator = JwtValidators.createDefault();
+
+        private Builder() {
+        }
+
+        /**
+         * Токены с указанным HMAC алгоритмом проверяются общим секретом (authentication-service).
+         */
+        public Builder macKey(SecretKey key, JWSAlgorithm algorithm) {
+            processors.put(algorithm, processor(new JWSVerificationKeySelector<>(algorithm, new ImmutableSecret<>(key))));
+            return this;
+        }
+
+        /**
+         * Токены с указанными асимметричными алгоритмами проверяются ключами из JWK источника (Keycloak).
+         */
+        public Builder jwkSource(JWKSource<SecurityContext> jwkSource, Set<JWSAlgorithm> algorithms) {
+            JWTProcessor<SecurityContext> processor = processor(new JWSVerificationKeySelector<>(algorithms, jwkSource));
+            processors.putAll(algorithms.stream().collect(Collectors.toMap(algorithm -> algorithm, algorithm -> processor)));
+            return this;
+        }
+
+        /**
+         * Валидатор claims; по умолчанию - проверка exp/nbf ({@link JwtValidators#createDefault()}).
+         */
+        public Builder validator(OAuth2TokenValidator<Jwt> validator) {
+            this.validator = validator;
+            return this;
+        }
+
+        public JwtAlgorithmDispatcher build() {
+            if (processors.isEmpty()) {
+                throw new IllegalStateException("At least one verifier must be configured");
+            }
+            return new JwtAlgorithmDispatcher(processors, validator);
+        }
+
+        private static JWTProcessor<SecurityContext> processor(JWSVerificationKeySelector<SecurityContext> keySelector) {
+            DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+            processor.setJWSKeySelector(keySelector);
+            // typ и claims (exp/nbf/iss) проверяются валидаторами Spring Security после конвертации
+            processor.setJWSTypeVerifier((type, context) -> { });
+            processor.setJWTClaimsSetVerifier((claims, context) -> { });
+            return processor;
+        }
+    }
+}
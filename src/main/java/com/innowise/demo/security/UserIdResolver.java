@@ -0,0 +1,117 @@
+package com.innowise.demo.security;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.innowise.demo.repository.UserRepository;
+
+/**
+ * Разрешает id текущего пользователя в БД по email из claim "sub" (точное совпадение,
+ * как в {@link AuthenticatedUser#canAccess(String)}). Токен без sub id не получает.
+ *
+ * Результат запоминается в {@link AuthenticatedUser} (на время запроса) и в ограниченном
+ * локальном кэше email -> id, поэтому проверка владельца ресурса сводится к сравнению id
+ * с CardInfo.user_id без загрузки пользователя. Отсутствующие пользователи не кэшируются
+ * (пользователь может быть создан позже через /createUser). При удалении пользователя
+ * запись нужно сбросить через {@link #evict(String)} (в транзакции - после фиксации).
+ */
+@Component
+public class UserIdResolver {
+
+    private final UserRepository userRepository;
+    private final Cache<String, Long> idsByEmail;
+
+    public UserIdResolver(UserRepository userRepository,
+                          @Value("${user.id-cache.max-size:10000}") long maxSize,
+                          @Value("${user.id-cache.ttl:10m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.idsByEmail = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Возвращает id пользователя в БД или null, если пользователь еще не создан
+     * или в токене нет sub.
+     */
+    public Long resolve(AuthenticatedUser user) {
+        Long userId = user.getUserId();
+        if (userId != null) {
+            return userId;
+        }
+        String email = user.emailOrNull();
+        if (email == null) {
+            return null;
+        }
+        userId = idsByEmail.getIfPresent(email);
+        if (userId == null) {
+            // Запрос к БД выполняется вне Cache.get(key, loader): загрузчик работает внутри
+            // ConcurrentHashMap.compute (synchronized), и блокирующий JDBC вызов закрепил бы
+            // виртуальный поток за потоком-носителем. Одновременный промах по одному email
+            // дает лишь повторный легкий запрос.
+            userId = userRepository.findIdByEmail(email).orElse(null);
+            if (userId == null) {
+                return null;
+            }
+            idsByEmail.put(email, userId);
+        }
+        user.setUserId(userId);
+        return userId;
+    }
+
+    /**
+     * Id пользователя без запроса к БД: из контекста запроса или локального кэша.
+     *
+     * @return null, если id еще не известен (тогда нужен {@link #resolve(AuthenticatedUser)})
+     */
+    public Long resolveCached(AuthenticatedUser user) {
+        Long userId = user.getUserId();
+        if (userId != null) {
+            return userId;
+        }
+        String email = user.emailOrNull();
+        if (email == null) {
+            return null;
+        }
+        userId = idsByEmail.getIfPresent(email);
+        if (userId != null) {
+            user.setUserId(userId);
+        }
+        return userId;
+    }
+
+    /**
+     * Проверяет, что ресурс с владельцем ownerId принадлежит пользователю.
+     */
+    public boolean isOwner(AuthenticatedUser user, Long ownerId) {
+        return ownerId != null && ownerId.equals(resolve(user));
+    }
+
+    /**
+     * Сбрасывает id удаленного пользователя. В транзакции запись удаляется после фиксации:
+     * иначе одновременный запрос успел бы до фиксации снова прочитать еще существующий id
+     * и закэшировать его на ttl.
+     */
+    public void evict(String email) {
+        if (email == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            idsByEmail.invalidate(email);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                idsByEmail.invalidate(email);
+            }
+        });
+    }
+}
@@ -1,22 +1,33 @@
 package com.innowise.demo.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 
+import org.hibernate.Hibernate;
 import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.oauth2.jwt.Jwt;
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import com.innowise.demo.cache.RedisBulkCache;
+import com.innowise.demo.cache.TransactionalCacheWriter;
+import com.innowise.demo.cache.UserJsonCache;
+import com.innowise.demo.dto.CardBatchResponse;
 import com.innowise.demo.dto.CardInfoDto;
 import com.innowise.demo.exception.CardInfoNotFoundException;
 import com.innowise.demo.exception.UserNotFoundException;
@@ -25,7 +36,8 @@ import com.innowise.demo.model.CardInfo;
 import com.innowise.demo.model.User;
 import com.innowise.demo.repository.CardInfoRepository;
 import com.innowise.demo.repository.UserRepository;
-import com.innowise.demo.util.SecurityUtils;
+import com.innowise.demo.security.AuthenticatedUser;
+import com.innowise.demo.security.UserIdResolver;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -37,39 +49,77 @@ public class CardInfoService {
     private final CardInfoRepository cardInfoRepository;
     private final CardInfoMapper cardInfoMapper;
     private final UserRepository userRepository;
+    private final UserIdResolver userIdResolver;
+    private final RedisBulkCache redisBulkCache;
+    private final TransactionalCacheWriter cacheWriter;
+    private final EntityManager entityManager;
 
     private static final String CARD_CACHE = "cardCache"; // кеш отдельной карты
     private static final String ALL_CARDS_CACHE = "allCards"; // кеш всех карт
+    // Кэши пользователей, в DTO которых входят карты
+    private static final String USERS_CACHE = "users";
+    private static final String USERS_BY_EMAIL_CACHE = "users_by_email";
+    private static final String USERS_ALL_CACHE = "users_all";
+    // Через сколько карт очищать контекст персистентности при потоковой выгрузке
+    private static final int STREAM_CLEAR_INTERVAL = 500;
 
     private static final String NOT_FOUND_SUFFIX = " not found";
     private static final String PREFIX_CARDINFO_WITH_ID = "CardInfo with id ";
 
     @PreAuthorize("hasAnyRole('ADMIN','USER')")
-    @CachePut(value = CARD_CACHE, key = "#result.id")
     @CacheEvict(value = ALL_CARDS_CACHE, allEntries = true)
+    @Transactional
     public CardInfoDto save(CardInfoDto dto) {
-        User user = userRepository.findById(dto.getUserId())
-                .orElseThrow(
-                        () -> new UserNotFoundException("User not found with id: " + dto.getUserId()));
-
-        ensureCurrentUserCanAccessUser(user);
+        User user = resolveCardOwner(dto.getUserId());
 
         CardInfo entity = cardInfoMapper.toEntity(dto);
         entity.setUser(user);
 
         CardInfo saved = cardInfoRepository.save(entity);
-        return cardInfoMapper.toDto(saved);
+        CardInfoDto result = cardInfoMapper.toDto(saved);
+        cacheWriter.putAfterCommit(Map.of(CARD_CACHE, Map.of(result.getId(), result)));
+        evictOwnerAfterCommit(user);
+        return result;
 
     }
 
     @PreAuthorize("hasAnyRole('ADMIN','USER')")
     @Cacheable(value = CARD_CACHE, key = "#id")
     public CardInfoDto getCardInfoById(Long id) {
-        CardInfo cardInfo = cardInfoRepository.findById(id)
-                .orElseThrow(() -> new CardInfoNotFoundException(PREFIX_CARDINFO_WITH_ID + id + NOT_FOUND_SUFFIX));
+        return cardInfoMapper.toDto(findAccessibleCard(id));
+    }
 
-        ensureCurrentUserCanAccessCard(cardInfo);
-        return cardInfoMapper.toDto(cardInfo);
+    /**
+     * Пакетное получение карт по id.
+     * Карты читаются из cardCache одной командой MGET, промахи - одним IN-запросом
+     * с записью в кэш одним pipeline. Чужие для USER карты попадают в missingIds, как несуществующие.
+     */
+    @PreAuthorize("hasAnyRole('ADMIN','USER')")
+    public CardBatchResponse getCardInfosBatch(List<Long> requestedIds) {
+        AuthenticatedUser currentUser = AuthenticatedUser.current();
+        Set<Long> ids = new LinkedHashSet<>(requestedIds);
+
+        Map<Long, CardInfoDto> cards = new HashMap<>(redisBulkCache.getAll(CARD_CACHE, ids, CardInfoDto.class));
+        List<Long> missedIds = ids.stream().filter(id -> !cards.containsKey(id)).toList();
+        if (!missedIds.isEmpty()) {
+            Map<Long, CardInfoDto> loaded = cardInfoRepository.findAllById(missedIds).stream()
+                    .map(cardInfoMapper::toDto)
+                    .collect(Collectors.toMap(CardInfoDto::getId, dto -> dto));
+            cacheCards(loaded.values());
+            cards.putAll(loaded);
+        }
+
+        List<CardInfoDto> found = new ArrayList<>();
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : ids) {
+            CardInfoDto card = cards.get(id);
+            if (card != null && (currentUser.isAdmin() || userIdResolver.isOwner(currentUser, card.getUserId()))) {
+                found.add(card);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new CardBatchResponse(found, missingIds);
     }
 
     @PreAuthorize("hasAnyRole('ADMIN','USER')")
@@ -79,21 +129,22 @@ public class CardInfoService {
     //         key = "{ T(org.springframework.security.core.context.SecurityContextHolder).getContext().getAuthentication()?.name ?: 'anonymous', #page, #size }",
     //         unless = "#result == null")
     public Page<CardInfoDto> getAllCardInfos(int page, int size) {
-        Authentication authentication = requireAuthentication();
-        boolean isAdmin = isAdmin(authentication);
+        AuthenticatedUser currentUser = AuthenticatedUser.current();
 
         try {
-            if (isAdmin) {
+            if (currentUser.isAdmin()) {
                 log.debug("Admin user requested all cards");
                 Page<CardInfoDto> dto = cardInfoRepository.findAll(PageRequest.of(page, size)).map(cardInfoMapper::toDto);
+                cacheCards(dto.getContent());
                 return dto;
             } else {
-                String userEmail = resolveCurrentUserIdentifier(authentication);
+                String userEmail = currentUser.getIdentifier();
                 log.debug("User {} requested their cards", userEmail);
                 Page<CardInfoDto> dto = cardInfoRepository.findAllByUser_EmailIgnoreCase(userEmail,
                         PageRequest.of(page, size))
                         .map(cardInfoMapper::toDto);
                 log.debug("Found {} cards for user {}", dto.getTotalElements(), userEmail);
+                cacheCards(dto.getContent());
         return dto;
             }
         } catch (Exception e) {
@@ -102,24 +153,41 @@ public class CardInfoService {
         }
     }
 
+    /**
+     * Потоковая выгрузка карт (по возрастанию id): ADMIN - все карты, USER - только свои.
+     * Карты читаются курсором и передаются в sink по одной; контекст персистентности очищается
+     * каждые STREAM_CLEAR_INTERVAL карт, поэтому память не растет с числом карт.
+     * Пользователь передается явно: метод выполняется в потоке записи ответа.
+     */
     @PreAuthorize("hasAnyRole('ADMIN','USER')")
-    @Caching(
-            put = {@CachePut(value = CARD_CACHE, key = "#id")},
-            evict = {@CacheEvict(value = ALL_CARDS_CACHE, allEntries = true)}
-    )
     @Transactional
-    public CardInfoDto updateCardInfo(Long id, CardInfoDto dto) {
-        CardInfo existing = cardInfoRepository.findById(id)
-                .orElseThrow(() -> new CardInfoNotFoundException(PREFIX_CARDINFO_WITH_ID + id + NOT_FOUND_SUFFIX));
+    public void streamCardInfos(AuthenticatedUser currentUser, Consumer<CardInfoDto> sink) {
+        try (Stream<CardInfo> cards = currentUser.isAdmin()
+                ? cardInfoRepository.streamAll()
+                : cardInfoRepository.streamAllByUserEmailIgnoreCase(currentUser.getIdentifier())) {
+            Iterator<CardInfo> iterator = cards.iterator();
+            int count = 0;
+            while (iterator.hasNext()) {
+                sink.accept(cardInfoMapper.toDto(iterator.next()));
+                if (++count % STREAM_CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
 
-        ensureCurrentUserCanAccessCard(existing);
+    @PreAuthorize("hasAnyRole('ADMIN','USER')")
+    @CacheEvict(value = ALL_CARDS_CACHE, allEntries = true)
+    @Transactional
+    public CardInfoDto updateCardInfo(Long id, CardInfoDto dto) {
+        CardInfo existing = findAccessibleCard(id);
+        User previousOwner = existing.getUser();
 
         existing .setNumber(dto.getNumber());
         existing .setHolder(dto.getHolder());
         existing .setExpirationDate(dto.getExpirationDate());
 
-        Authentication authentication = requireAuthentication();
-        boolean isAdmin = isAdmin(authentication);
+        boolean isAdmin = AuthenticatedUser.current().isAdmin();
 
         if (dto.getUserId() != null) {
             User currentUser = existing.getUser();
@@ -133,89 +201,102 @@ public class CardInfoService {
             }
         }
 
-        return cardInfoMapper.toDto(cardInfoRepository.save(existing));
+        CardInfo saved = cardInfoRepository.save(existing);
+        // flush до построения DTO: версия (ETag) в кэше должна соответствовать сохраненным данным
+        cardInfoRepository.flush();
+        CardInfoDto result = cardInfoMapper.toDto(saved);
+        cacheWriter.putAfterCommit(Map.of(CARD_CACHE, Map.of(result.getId(), result)));
+        evictOwnerAfterCommit(previousOwner);
+        if (saved.getUser() != previousOwner) {
+            evictOwnerAfterCommit(saved.getUser());
+        }
+        return result;
     }
 
     @PreAuthorize("hasAnyRole('ADMIN','USER')")
-    @Caching(evict = {
-            @CacheEvict(value = CARD_CACHE, key = "#id"),
-            @CacheEvict(value = ALL_CARDS_CACHE, allEntries = true)
-    })
+    @CacheEvict(value = ALL_CARDS_CACHE, allEntries = true)
     @Transactional
     public void deleteCardInfo(Long id) {
-        CardInfo cardInfo = cardInfoRepository.findById(id)
-                .orElseThrow(() -> new CardInfoNotFoundException(PREFIX_CARDINFO_WITH_ID + id + NOT_FOUND_SUFFIX));
-
-        ensureCurrentUserCanAccessCard(cardInfo);
+        CardInfo cardInfo = findAccessibleCard(id);
 
         cardInfoRepository.delete(cardInfo);
+        cacheWriter.evictAfterCommit(CARD_CACHE, List.of(id));
+        evictOwnerAfterCommit(cardInfo.getUser());
 
     }
 
-    private Authentication requireAuthentication() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null) {
-            throw new AccessDeniedException("Authentication required");
-        }
-        return authentication;
+    /**
+     * Записывает карты страницы или пакета в cardCache одним pipeline:
+     * следующие запросы карты по id обслуживаются из кэша.
+     */
+    private void cacheCards(Collection<CardInfoDto> cards) {
+        Map<Long, CardInfoDto> entries = new HashMap<>();
+        cards.forEach(card -> entries.put(card.getId(), card));
+        redisBulkCache.putAll(CARD_CACHE, entries);
     }
 
-    private void ensureCurrentUserCanAccessUser(User user) {
-        Authentication authentication = requireAuthentication();
-        if (isAdmin(authentication)) {
+    /**
+     * Карты входят в UserDto владельца, поэтому после фиксации удаляются его записи в users,
+     * users_by_email и users_json и страницы users_all. Email берется без запроса к БД: из загруженной
+     * сущности владельца или, для USER, из токена (владелец - он сам). Если email неизвестен (ADMIN и
+     * незагруженная ссылка на владельца), users_by_email и users_json очищаются целиком.
+     */
+    private void evictOwnerAfterCommit(User owner) {
+        if (owner == null) {
             return;
         }
-
-        String currentIdentifier = resolveCurrentUserIdentifier(authentication);
-        if (user == null || user.getEmail() == null
-                || !user.getEmail().equalsIgnoreCase(currentIdentifier)) {
-            throw new AccessDeniedException("Access denied");
+        cacheWriter.evictAfterCommit(USERS_CACHE, List.of(owner.getId()));
+        cacheWriter.clearAfterCommit(USERS_ALL_CACHE);
+
+        String ownerEmail;
+        if (Hibernate.isInitialized(owner)) {
+            ownerEmail = owner.getEmail();
+        } else {
+            AuthenticatedUser currentUser = AuthenticatedUser.current();
+            ownerEmail = currentUser.isAdmin() ? null : currentUser.getIdentifier();
         }
-    }
-
-    private void ensureCurrentUserCanAccessCard(CardInfo cardInfo) {
-        if (cardInfo == null) {
-            throw new AccessDeniedException("Access denied");
+        if (ownerEmail != null) {
+            cacheWriter.evictAfterCommit(USERS_BY_EMAIL_CACHE, List.of(ownerEmail));
+            cacheWriter.evictAfterCommit(UserJsonCache.CACHE_NAME,
+                    List.of(UserJsonCache.idKey(owner.getId()), UserJsonCache.emailKey(ownerEmail)));
+        } else {
+            cacheWriter.clearAfterCommit(USERS_BY_EMAIL_CACHE);
+            cacheWriter.clearAfterCommit(UserJsonCache.CACHE_NAME);
         }
-        ensureCurrentUserCanAccessUser(cardInfo.getUser());
-    }
-
-    private boolean isAdmin(Authentication authentication) {
-        return authentication.getAuthorities().stream()
-                .map(GrantedAuthority::getAuthority)
-                .anyMatch("ROLE_ADMIN"::equals);
     }
 
-    private String resolveCurrentUserIdentifier(Authentication authentication) {
-        // Используем SecurityUtils для единообразия с другими частями приложения
-        try {
-            return SecurityUtils.getEmailFromToken(authentication);
-        } catch (IllegalStateException e) {
-            // Если не удалось извлечь email через SecurityUtils, пробуем альтернативные способы
-        if (authentication instanceof JwtAuthenticationToken jwtAuthenticationToken) {
-            Jwt jwt = jwtAuthenticationToken.getToken();
-                // Fallback на другие claims
-            String email = jwt.getClaimAsString("email");
-            if (email != null && !email.isBlank()) {
-                return email;
-            }
-            String preferredUsername = jwt.getClaimAsString("preferred_username");
-            if (preferredUsername != null && !preferredUsername.isBlank()) {
-                return preferredUsername;
-            }
+    /**
+     * Возвращает владельца для новой карты.
+     * ADMIN - пользователь загружается (проверка существования).
+     * USER - может создать карту только для себя; его id уже получен из БД (UserIdResolver),
+     * поэтому вместо загрузки используется ссылка (getReferenceById) только для user_id.
+     */
+    private User resolveCardOwner(Long userId) {
+        AuthenticatedUser currentUser = AuthenticatedUser.current();
+        if (currentUser.isAdmin()) {
+            return userRepository.findById(userId)
+                    .orElseThrow(() -> new UserNotFoundException("User not found with id: " + userId));
         }
-
-        Object principal = authentication.getPrincipal();
-        if (principal instanceof UserDetails userDetails) {
-            return userDetails.getUsername();
-        }
-
-        String name = authentication.getName();
-        if (name != null && !name.isBlank()) {
-            return name;
+        if (!userIdResolver.isOwner(currentUser, userId)) {
+            throw new AccessDeniedException("Access denied");
         }
+        return userRepository.getReferenceById(userId);
+    }
 
-            throw new AccessDeniedException("Cannot determine current user: " + e.getMessage());
+    /**
+     * Загружает карту с учетом прав доступа одним запросом.
+     * ADMIN - по id, USER - по id карты и id владельца.
+     * Чужая карта для USER неотличима от несуществующей (CardInfoNotFoundException).
+     */
+    private CardInfo findAccessibleCard(Long id) {
+        AuthenticatedUser currentUser = AuthenticatedUser.current();
+        Optional<CardInfo> cardInfo;
+        if (currentUser.isAdmin()) {
+            cardInfo = cardInfoRepository.findById(id);
+        } else {
+            Long userId = userIdResolver.resolve(currentUser);
+            cardInfo = userId != null ? cardInfoRepository.findByIdAndUserId(id, userId) : Optional.empty();
         }
+        return cardInfo.orElseThrow(() -> new CardInfoNotFoundException(PREFIX_CARDINFO_WITH_ID + id + NOT_FOUND_SUFFIX));
     }
 }
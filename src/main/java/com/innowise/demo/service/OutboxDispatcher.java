@@ -0,0 +1,215 @@
+package com.innowise.demo.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.innowise.demo.client.AuthServiceBatchingClient;
+import com.innowise.demo.model.OutboxEvent;
+import com.innowise.demo.model.OutboxStatus;
+import com.innowise.demo.repository.OutboxEventRepository;
+
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+
+/**
+ * Фоновая доставка событий outbox в authentication-service.
+ *
+ * Каждый цикл забирает пачку готовых событий (SELECT ... FOR UPDATE SKIP LOCKED) и захватывает их
+ * на время lease в короткой транзакции, после чего отправляет пачку в authentication-service
+ * одним пакетным запросом ({@link AuthServiceBatchingClient}) уже вне транзакции:
+ * блокировки строк и соединение с БД не удерживаются на время HTTP вызовов.
+ * Успешные события помечаются SENT одним UPDATE, неуспешные откладываются с экспоненциальной
+ * задержкой, после max-attempts переводятся в FAILED (повтор через /api/v1/admin/outbox/{id}/retry).
+ * Если authentication-service отклоняет вызов без попытки (circuit breaker разомкнут, bulkhead заполнен),
+ * события откладываются без расходования попыток.
+ */
+@Component
+public class OutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxDispatcher.class);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final AuthServiceBatchingClient batchingClient;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+    private final Duration retention;
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository,
+                            AuthServiceBatchingClient batchingClient,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${outbox.dispatcher.batch-size:50}") int batchSize,
+                            @Value("${outbox.dispatcher.max-attempts:10}") int maxAttempts,
+                            @Value("${outbox.dispatcher.initial-backoff:5s}") Duration initialBackoff,
+                            @Value("${outbox.dispatcher.max-backoff:10m}") Duration maxBackoff,
+                            @Value("${outbox.dispatcher.lease:2m}") Duration lease,
+                            @Value("${outbox.retention:7d}") Duration retention) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.batchingClient = batchingClient;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+        this.retention = retention;
+    }
+
+    /**
+     * Разбирает накопившуюся очередь: пачки обрабатываются, пока очередная пачка заполнена целиком.
+     * Неуспешные события откладываются в будущее, поэтому цикл всегда завершается.
+     */
+    @Scheduled(fixedDelayString = "${outbox.dispatcher.interval:5s}",
+            initialDelayString = "${outbox.dispatcher.initial-delay:10s}")
+    public void dispatchPending() {
+        int processed;
+        do {
+            processed = dispatchBatch();
+        } while (processed == batchSize);
+    }
+
+    /**
+     * Доставляет одну пачку событий.
+     *
+     * @return количество обработанных событий (0, если доставка отложена)
+     */
+    public int dispatchBatch() {
+        Instant now = Instant.now();
+        List<OutboxEvent> batch = transactionTemplate.execute(status -> {
+            List<OutboxEvent> due = outboxEventRepository.lockDueEvents(now, batchSize);
+            if (!due.isEmpty()) {
+                outboxEventRepository.claim(due.stream().map(OutboxEvent::getId).toList(), now.plus(lease));
+            }
+            return due;
+        });
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+
+        // Вся пачка уходит в authentication-service одним пакетным запросом
+        Map<OutboxEvent, CompletableFuture<Void>> deliveries = new LinkedHashMap<>();
+        for (OutboxEvent event : batch) {
+            deliveries.put(event, deliver(event));
+        }
+        batchingClient.flush();
+
+        List<Long> sent = new ArrayList<>(batch.size());
+        List<Runnable> failures = new ArrayList<>();
+        List<Long> deferred = new ArrayList<>();
+        deliveries.forEach((event, delivery) -> {
+            Throwable error = awaitDelivery(delivery);
+            if (error == null) {
+                sent.add(event.getId());
+            } else if (error instanceof CallNotPermittedException || error instanceof BulkheadFullException) {
+                deferred.add(event.getId());
+            } else {
+                failures.add(recordFailure(event, error));
+            }
+        });
+        if (!deferred.isEmpty()) {
+            log.warn("Authentication-service call rejected by circuit breaker or bulkhead, {} outbox events deferred",
+                    deferred.size());
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sent.isEmpty()) {
+                outboxEventRepository.markSent(sent, Instant.now());
+            }
+            failures.forEach(Runnable::run);
+            Instant nextAttemptAt = Instant.now().plus(initialBackoff);
+            deferred.forEach(id -> outboxEventRepository.defer(id, nextAttemptAt));
+        });
+        log.debug("Outbox batch processed: {} sent, {} failed, {} deferred",
+                sent.size(), failures.size(), deferred.size());
+        // Отложенные события не должны запускать следующую пачку немедленно
+        return deferred.isEmpty() ? batch.size() : 0;
+    }
+
+    /**
+     * Удаляет доставленные события старше outbox.retention.
+     */
+    @Scheduled(fixedDelayString = "${outbox.cleanup.interval:1h}",
+            initialDelayString = "${outbox.dispatcher.initial-delay:10s}")
+    public void purgeSent() {
+        Integer deleted = transactionTemplate.execute(
+                status -> outboxEventRepository.deleteSentBefore(Instant.now().minus(retention)));
+        if (deleted != null && deleted > 0) {
+            log.info("Purged {} sent outbox events older than {}", deleted, retention);
+        }
+    }
+
+    private CompletableFuture<Void> deliver(OutboxEvent event) {
+        return switch (event.getEventType()) {
+            case USER_DELETED -> batchingClient.deleteUser(event.getPayload());
+        };
+    }
+
+    /**
+     * Ожидает результат доставки. Время ожидания ограничено таймаутами HTTP клиента.
+     *
+     * @return ошибка доставки или null при успехе
+     */
+    private static Throwable awaitDelivery(CompletableFuture<Void> delivery) {
+        try {
+            delivery.join();
+            return null;
+        } catch (CompletionException | CancellationException ex) {
+            return ex.getCause() != null ? ex.getCause() : ex;
+        }
+    }
+
+    /**
+     * Откладывает событие с экспоненциальной задержкой или переводит в FAILED после max-attempts.
+     */
+    private Runnable recordFailure(OutboxEvent event, Throwable ex) {
+        // attempts в памяти еще не учитывает захват (claim увеличил его в БД)
+        int attempt = event.getAttempts() + 1;
+        String error = truncate(ex.getMessage());
+        if (attempt >= maxAttempts) {
+            log.error("Outbox event {} ({}) failed after {} attempts: {}",
+                    event.getId(), event.getEventType(), attempt, error);
+            return () -> outboxEventRepository.markAttemptFailed(
+                    event.getId(), OutboxStatus.FAILED, Instant.now(), error);
+        }
+        Instant nextAttemptAt = Instant.now().plus(backoff(attempt));
+        log.warn("Outbox event {} ({}) delivery attempt {} failed, next attempt at {}: {}",
+                event.getId(), event.getEventType(), attempt, nextAttemptAt, error);
+        return () -> outboxEventRepository.markAttemptFailed(
+                event.getId(), OutboxStatus.PENDING, nextAttemptAt, error);
+    }
+
+    /**
+     * Экспоненциальная задержка: initialBackoff * 2^(attempt - 1), не больше maxBackoff.
+     */
+    Duration backoff(int attempt) {
+        int shift = Math.min(attempt - 1, 30);
+        Duration delay = initialBackoff.multipliedBy(1L << shift);
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
@@ -0,0 +1,96 @@
+package com.innowise.demo.service;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.innowise.demo.dto.OutboxEventDto;
+import com.innowise.demo.dto.PagedOutboxEventResponse;
+import com.innowise.demo.exception.BadRequestException;
+import com.innowise.demo.exception.ResourceNotFoundException;
+import com.innowise.demo.mapper.OutboxEventMapper;
+import com.innowise.demo.model.OutboxEvent;
+import com.innowise.demo.model.OutboxEventType;
+import com.innowise.demo.model.OutboxStatus;
+import com.innowise.demo.repository.OutboxEventRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Запись событий синхронизации в outbox и административный просмотр очереди.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxEventMapper outboxEventMapper;
+
+    /**
+     * Добавляет событие в outbox. Вызывается только внутри транзакции бизнес-операции:
+     * событие фиксируется вместе с изменением в us_db или откатывается вместе с ним.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(OutboxEventType eventType, String payload) {
+        outboxEventRepository.save(OutboxEvent.pending(eventType, payload, Instant.now()));
+    }
+
+    @Transactional(readOnly = true)
+    public PagedOutboxEventResponse findEvents(OutboxStatus status, int page, int size) {
+        PageRequest pageRequest = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "id"));
+        Page<OutboxEvent> events = status != null
+                ? outboxEventRepository.findByStatus(status, pageRequest)
+                : outboxEventRepository.findAll(pageRequest);
+
+        List<OutboxEventDto> dtos = events.stream()
+                .map(outboxEventMapper::toDto)
+                .toList();
+
+        return new PagedOutboxEventResponse(
+                dtos,
+                events.getNumber(),
+                events.getSize(),
+                events.getTotalElements(),
+                events.getTotalPages()
+        );
+    }
+
+    /**
+     * Количество событий по статусам (статусы без событий возвращаются с нулем).
+     */
+    @Transactional(readOnly = true)
+    public Map<OutboxStatus, Long> countByStatus() {
+        Map<OutboxStatus, Long> counts = new EnumMap<>(OutboxStatus.class);
+        for (OutboxStatus status : OutboxStatus.values()) {
+            counts.put(status, 0L);
+        }
+        for (Object[] row : outboxEventRepository.countByStatus()) {
+            counts.put((OutboxStatus) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    /**
+     * Возвращает событие в очередь для немедленной повторной доставки со сбросом счетчика попыток.
+     */
+    @Transactional
+    public OutboxEventDto retry(Long id) {
+        OutboxEvent event = outboxEventRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Outbox event with id " + id + " not found!"));
+        if (event.getStatus() == OutboxStatus.SENT) {
+            throw new BadRequestException("Outbox event with id " + id + " is already sent");
+        }
+
+        event.setStatus(OutboxStatus.PENDING);
+        event.setAttempts(0);
+        event.setNextAttemptAt(Instant.now());
+        return outboxEventMapper.toDto(event);
+    }
+}
@@ -1,34 +1,56 @@
 package com.innowise.demo.service;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import jakarta.persistence.EntityManager;
+
+import org.springframework.beans.BeanUtils;
 import org.springframework.cache.annotation.CacheConfig;
 import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import com.innowise.demo.cache.RedisBulkCache;
+import com.innowise.demo.cache.TransactionalCacheWriter;
+import com.innowise.demo.cache.UserJsonCache;
+import com.innowise.demo.cache.UserPageCache;
 import com.innowise.demo.dto.CardInfoDto;
 import com.innowise.demo.dto.CreateUserFromTokenRequest;
 import com.innowise.demo.dto.PagedUserResponse;
 import com.innowise.demo.dto.UpdateUserDto;
+import com.innowise.demo.dto.UserBatchRequest;
+import com.innowise.demo.dto.UserBatchResponse;
 import com.innowise.demo.dto.UserDto;
+import com.innowise.demo.dto.UserIdPage;
 import com.innowise.demo.exception.CardAlreadyExistsException;
 import com.innowise.demo.exception.UserAlreadyExistsException;
 import com.innowise.demo.exception.UserNotFoundException;
 import com.innowise.demo.mapper.UserMapper;
 import com.innowise.demo.model.CardInfo;
+import com.innowise.demo.model.OutboxEventType;
 import com.innowise.demo.model.User;
 import com.innowise.demo.repository.CardInfoRepository;
 import com.innowise.demo.repository.UserRepository;
-import com.innowise.demo.client.AuthServiceClient;
+import com.innowise.demo.repository.UserSummary;
+import com.innowise.demo.security.AuthenticatedUser;
+import com.innowise.demo.security.UserIdResolver;
 
 import lombok.RequiredArgsConstructor;
 
@@ -39,11 +61,25 @@ public class UserService {
     private final UserRepository userRepository;
     private final UserMapper userMapper;
     private final CardInfoRepository cardInfoRepository;
-    private final AuthServiceClient authServiceClient;
+    private final OutboxService outboxService;
+    private final UserIdResolver userIdResolver;
+    private final RedisBulkCache redisBulkCache;
+    private final UserPageCache userPageCache;
+    private final TransactionalCacheWriter cacheWriter;
+    private final EntityManager entityManager;
 
     private static final String NOT_FOUND_SUFFIX = " not found!";
     private static final String USER_WITH_EMAIL = "User with email ";
     private static final String PREFIX_WITH_ID = "User with id ";
+    // Пользователи без карт (проекции): отдельные записи кэша для этой формы ответа.
+    // Страницы хранятся в отдельном кэше: их очистка не затрагивает записи отдельных пользователей
+    private static final String USERS_SUMMARY_CACHE = "users_summary";
+    private static final String USERS_SUMMARY_PAGES_CACHE = "users_summary_pages";
+    private static final String USERS_CACHE = "users";
+    private static final String USERS_BY_EMAIL_CACHE = "users_by_email";
+    private static final String CARD_CACHE = "cardCache";
+    // Пользователей с картами в одном IN-запросе при потоковой выгрузке
+    private static final int STREAM_CHUNK_SIZE = 100;
 
 
     /**
@@ -56,8 +92,8 @@ public class UserService {
      * @return созданный пользователь
      * @throws UserAlreadyExistsException если пользователь с таким email уже существует
      */
-    @CachePut(key = "#result.id")
-    @CacheEvict(value = {"users_all", "users_by_email"}, allEntries = true)
+    @CacheEvict(value = {"users_all", UserPageCache.CACHE_NAME, USERS_SUMMARY_PAGES_CACHE}, allEntries = true)
+    @Transactional
     public UserDto createUserFromToken(String email, CreateUserFromTokenRequest request) {
         // Проверка на уникальность email из токена
         if (userRepository.findByEmailNativeQuery(email).isPresent()) {
@@ -79,11 +115,11 @@ public class UserService {
         // Hibernate сохранит пользователя
         User saved = userRepository.save(entity);
 
-        return userMapper.toDto(saved);
+        return writeThrough(userMapper.toDto(saved));
     }
 
-    @CachePut(key = "#result.id")
-    @CacheEvict(value = {"users_all", "users_by_email"}, allEntries = true) // очищаем кэш списка и по email
+    @CacheEvict(value = {"users_all", UserPageCache.CACHE_NAME, USERS_SUMMARY_PAGES_CACHE}, allEntries = true) // очищаем кэш списков
+    @Transactional
     public UserDto createUser(UserDto dto) {
         dto.setId(null);
         if (dto.getCards() != null) {
@@ -106,7 +142,7 @@ public class UserService {
         // Hibernate сохранит и пользователя, и все его карты (CascadeType.ALL)
         User saved = userRepository.save(entity);
 
-        return userMapper.toDto(saved);
+        return writeThrough(userMapper.toDto(saved));
     }
 
     //get by id
@@ -120,14 +156,84 @@ public class UserService {
         return userMapper.toDto(user);
     }
 
-    @Cacheable(value = "users_all", key = "'page_' + #page + '_size_' + #size")
+    /**
+     * Страница пользователей с картами.
+     * Без cache.users.page-ids.enabled страница кэшируется целиком в users_all, иначе - списком id
+     * (UserPageCache), а пользователи страницы собираются из кэша users.
+     */
+    @Cacheable(value = "users_all", key = "'page_' + #page + '_size_' + #size", condition = "!@userPageCache.enabled")
     @Transactional(readOnly = true)//длф решения проблемы ленивой инициализации
     public PagedUserResponse findAllUsers(int page, int size) {
+        if (userPageCache.isEnabled()) {
+            Optional<PagedUserResponse> cached = userPageCache.get(page, size).flatMap(this::resolveIdPage);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+
         Page<User> users = userRepository.findAll(PageRequest.of(page, size));
 
         List<UserDto> dtos = users.stream()
                 .map(userMapper::toDto)
                 .toList();
+        // Пользователи страницы кэшируются и по отдельности: следующие запросы по id/email не идут в БД
+        cacheUsers(dtos);
+
+        PagedUserResponse response = new PagedUserResponse(
+                dtos,
+                users.getNumber(),
+                users.getSize(),
+                users.getTotalElements(),
+                users.getTotalPages()
+        );
+        if (userPageCache.isEnabled()) {
+            userPageCache.put(response);
+        }
+        return response;
+    }
+
+    /**
+     * Собирает страницу по списку id: пользователи из кэша users, промахи - одним IN-запросом.
+     * Если кого-то из страницы уже нет в БД, страница устарела и перечитывается целиком.
+     */
+    private Optional<PagedUserResponse> resolveIdPage(UserIdPage idPage) {
+        Map<Long, UserDto> users = findUsersByIds(new LinkedHashSet<>(idPage.getIds()));
+        if (users.size() < idPage.getIds().size()) {
+            return Optional.empty();
+        }
+        List<UserDto> content = idPage.getIds().stream().map(users::get).toList();
+        return Optional.of(new PagedUserResponse(content, idPage.getPage(), idPage.getSize(),
+                idPage.getTotalElements(), idPage.getTotalPages()));
+    }
+
+    /**
+     * Пользователь без карт: проекция читает только колонки users.
+     */
+    @Cacheable(value = USERS_SUMMARY_CACHE, key = "'id_' + #id")
+    @Transactional(readOnly = true)
+    public UserDto findUserSummaryById(Long id) {
+        return userRepository.findSummaryById(id)
+                .map(userMapper::toDto)
+                .orElseThrow(() -> new UserNotFoundException(PREFIX_WITH_ID + id + NOT_FOUND_SUFFIX));
+    }
+
+    @Cacheable(value = USERS_SUMMARY_CACHE, key = "'email_' + #email")
+    @Transactional(readOnly = true)
+    public UserDto getUserSummaryByEmail(String email) {
+        return userRepository.findSummaryByEmail(email)
+                .map(userMapper::toDto)
+                .orElseThrow(() -> new UserNotFoundException(USER_WITH_EMAIL + email + NOT_FOUND_SUFFIX));
+    }
+
+    /**
+     * Страница пользователей без карт: ни карты, ни их коллекции не загружаются.
+     */
+    @Cacheable(value = USERS_SUMMARY_PAGES_CACHE, key = "'page_' + #page + '_size_' + #size")
+    @Transactional(readOnly = true)
+    public PagedUserResponse findAllUserSummaries(int page, int size) {
+        Page<UserSummary> users = userRepository.findAllProjectedBy(PageRequest.of(page, size));
+        List<UserDto> dtos = users.map(userMapper::toDto).getContent();
+        cacheUserSummaries(dtos);
 
         return new PagedUserResponse(
                 dtos,
@@ -168,6 +274,166 @@ public class UserService {
         return userMapper.toDto(user);
     }
 
+    /**
+     * Потоковая выгрузка всех пользователей с картами (по возрастанию id).
+     * Id читаются курсором, пользователи с картами загружаются порциями по STREAM_CHUNK_SIZE
+     * одним IN-запросом на порцию (без N+1) и передаются в sink. После каждой порции контекст
+     * персистентности очищается: память не растет с числом пользователей. Если sink пишет
+     * в ответ медленнее, чем читается БД, чтение курсора ждет записи.
+     * Выгруженные данные в кэш не записываются.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllUsers(Consumer<UserDto> sink) {
+        try (Stream<Long> ids = userRepository.streamAllIds()) {
+            Iterator<Long> iterator = ids.iterator();
+            List<Long> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == STREAM_CHUNK_SIZE || !iterator.hasNext()) {
+                    userRepository.findAllWithCardsByIdIn(chunk).stream()
+                            .sorted(Comparator.comparing(User::getId))
+                            .map(userMapper::toDto)
+                            .forEach(sink);
+                    entityManager.clear();
+                    chunk.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Пакетное получение пользователей по id и email.
+     * Записи читаются из кэшей users и users_by_email одной командой MGET на кэш,
+     * промахи загружаются одним IN-запросом (с картами) и записываются обратно в кэш одним pipeline.
+     * Доступ проверяется для каждого элемента: USER получает только себя, остальные
+     * элементы попадают в missing так же, как несуществующие.
+     */
+    @Transactional(readOnly = true)
+    public UserBatchResponse findUsersBatch(UserBatchRequest request, AuthenticatedUser currentUser) {
+        Set<Long> ids = distinct(request.getIds());
+        Set<String> emails = distinct(request.getEmails());
+
+        Map<Long, UserDto> byId = findUsersByIds(ids);
+
+        Map<String, UserDto> byEmail = new HashMap<>(redisBulkCache.getAll(USERS_BY_EMAIL_CACHE, emails, UserDto.class));
+        List<String> missedEmails = emails.stream().filter(email -> !byEmail.containsKey(email)).toList();
+        if (!missedEmails.isEmpty()) {
+            Map<String, UserDto> loaded = userRepository.findAllWithCardsByEmailIn(missedEmails).stream()
+                    .map(userMapper::toDto)
+                    .collect(Collectors.toMap(UserDto::getEmail, dto -> dto));
+            cacheUsers(loaded.values());
+            byEmail.putAll(loaded);
+        }
+
+        // Пользователь, запрошенный и по id, и по email, возвращается один раз
+        Map<Long, UserDto> users = new LinkedHashMap<>();
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : ids) {
+            UserDto user = byId.get(id);
+            if (user != null && currentUser.canAccess(user.getEmail())) {
+                users.putIfAbsent(user.getId(), user);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        List<String> missingEmails = new ArrayList<>();
+        for (String email : emails) {
+            UserDto user = byEmail.get(email);
+            if (user != null && currentUser.canAccess(user.getEmail())) {
+                users.putIfAbsent(user.getId(), user);
+            } else {
+                missingEmails.add(email);
+            }
+        }
+        return new UserBatchResponse(new ArrayList<>(users.values()), missingIds, missingEmails);
+    }
+
+    /**
+     * Пользователи с картами по id: из кэша users одной командой MGET, промахи - одним IN-запросом
+     * с записью в кэш. Несуществующие id в результат не попадают.
+     */
+    private Map<Long, UserDto> findUsersByIds(Set<Long> ids) {
+        Map<Long, UserDto> byId = new HashMap<>(redisBulkCache.getAll(USERS_CACHE, ids, UserDto.class));
+        List<Long> missedIds = ids.stream().filter(id -> !byId.containsKey(id)).toList();
+        if (!missedIds.isEmpty()) {
+            Map<Long, UserDto> loaded = userRepository.findAllWithCardsByIdIn(missedIds).stream()
+                    .map(userMapper::toDto)
+                    .collect(Collectors.toMap(UserDto::getId, dto -> dto));
+            cacheUsers(loaded.values());
+            byId.putAll(loaded);
+        }
+        return byId;
+    }
+
+    private static <T> Set<T> distinct(List<T> values) {
+        return values == null ? Set.of() : new LinkedHashSet<>(values);
+    }
+
+    /**
+     * Записывает пользователей с картами в кэши users (по id) и users_by_email (по email)
+     * одним pipeline - те же записи, что создают findUserById и getUserByEmail.
+     */
+    private void cacheUsers(Collection<UserDto> users) {
+        Map<Long, UserDto> byId = new HashMap<>();
+        Map<String, UserDto> byEmail = new HashMap<>();
+        for (UserDto user : users) {
+            byId.put(user.getId(), user);
+            if (user.getEmail() != null) {
+                byEmail.put(user.getEmail(), user);
+            }
+        }
+        redisBulkCache.putAll(Map.of(USERS_CACHE, byId, USERS_BY_EMAIL_CACHE, byEmail));
+    }
+
+    /**
+     * Записывает пользователя после фиксации транзакции во все кэши, где он хранится:
+     * users (по id), users_by_email, users_summary (без карт, по id и email) и cardCache (его карты).
+     * Чтение сразу после изменения обслуживается из кэша, а откат не оставляет в кэше незафиксированных данных.
+     */
+    private UserDto writeThrough(UserDto user) {
+        if (user.getId() == null) {
+            return user;
+        }
+        UserDto summary = new UserDto();
+        BeanUtils.copyProperties(user, summary, "cards");
+
+        Map<Object, UserDto> byEmail = new HashMap<>();
+        Map<Object, UserDto> summaries = new HashMap<>();
+        summaries.put("id_" + user.getId(), summary);
+        if (user.getEmail() != null) {
+            byEmail.put(user.getEmail(), user);
+            summaries.put("email_" + user.getEmail(), summary);
+        }
+        Map<Long, CardInfoDto> cards = new HashMap<>();
+        if (user.getCards() != null) {
+            user.getCards().forEach(card -> cards.put(card.getId(), card));
+        }
+        cacheWriter.putAfterCommit(Map.of(
+                USERS_CACHE, Map.of(user.getId(), user),
+                USERS_BY_EMAIL_CACHE, byEmail,
+                USERS_SUMMARY_CACHE, summaries,
+                CARD_CACHE, cards));
+        // Готовый JSON ответа не пишется заранее: он соберется при следующем чтении
+        cacheWriter.evictAfterCommit(UserJsonCache.CACHE_NAME, user.getEmail() != null
+                ? List.of(UserJsonCache.idKey(user.getId()), UserJsonCache.emailKey(user.getEmail()))
+                : List.of(UserJsonCache.idKey(user.getId())));
+        return user;
+    }
+
+    /**
+     * То же для пользователей без карт: ключи findUserSummaryById и getUserSummaryByEmail.
+     */
+    private void cacheUserSummaries(Collection<UserDto> users) {
+        Map<String, UserDto> entries = new HashMap<>();
+        for (UserDto user : users) {
+            entries.put("id_" + user.getId(), user);
+            if (user.getEmail() != null) {
+                entries.put("email_" + user.getEmail(), user);
+            }
+        }
+        redisBulkCache.putAll(USERS_SUMMARY_CACHE, entries);
+    }
+
     /**
      * Обновляет текущего пользователя (по email из токена).
      * Выполняет частичное обновление - обновляются только переданные поля.
@@ -178,7 +444,7 @@ public class UserService {
      * @return обновленный пользователь
      * @throws UserNotFoundException если пользователь не найден
      */
-    @CacheEvict(value = {"users_all", "users_by_email"}, allEntries = true)
+    @CacheEvict(value = {"users_all", UserPageCache.CACHE_NAME, USERS_SUMMARY_PAGES_CACHE}, allEntries = true)
     @Transactional
     public UserDto updateCurrentUser(String userEmail, UpdateUserDto dto) {
         // Находим пользователя по email из токена
@@ -201,8 +467,7 @@ public class UserService {
      * @return обновленный пользователь
      * @throws UserNotFoundException если пользователь не найден
      */
-    @CachePut(key = "#id")
-    @CacheEvict(value = {"users_all", "users_by_email"}, allEntries = true)
+    @CacheEvict(value = {"users_all", UserPageCache.CACHE_NAME, USERS_SUMMARY_PAGES_CACHE}, allEntries = true)
     @Transactional
     public UserDto updateUserByAdmin(Long id, UpdateUserDto dto, String adminEmail) {
         // Получаем пользователя по ID (без проверки доступа для админа)
@@ -246,7 +511,12 @@ public class UserService {
             holder = existUser.getEmail();
         }
 
+        List<Long> replacedCardIds = List.of();
         if (dto.getCards() != null) {
+            replacedCardIds = existUser.getCards().stream()
+                    .map(CardInfo::getId)
+                    .filter(Objects::nonNull)
+                    .toList();
             Map<Long, CardInfo> existingCardsMap = existUser.getCards().stream()
                     .filter(c -> c.getId() != null)
                     .collect(Collectors.toMap(CardInfo::getId, c -> c));
@@ -325,11 +595,18 @@ public class UserService {
         }
 
         User savedUser = userRepository.save(existUser);
-        return userMapper.toDto(savedUser);
+        // flush до построения DTO: Hibernate увеличивает @Version при записи, а DTO с версией
+        // попадает в кэш (writeThrough) и определяет ETag
+        userRepository.flush();
+        // Прежние карты пользователя изменены или удалены: их записи cardCache удаляются одной командой,
+        // затем записываются актуальные карты (writeThrough)
+        cacheWriter.evictAfterCommit(CARD_CACHE, replacedCardIds);
+        return writeThrough(userMapper.toDto(savedUser));
     }
 
     @Caching(evict = {
-            @CacheEvict(value = {"users", "users_all", "users_by_email"}, allEntries = true),
+            @CacheEvict(value = {"users", "users_all", UserPageCache.CACHE_NAME, "users_by_email",
+                    USERS_SUMMARY_CACHE, USERS_SUMMARY_PAGES_CACHE, UserJsonCache.CACHE_NAME}, allEntries = true),
             @CacheEvict(value = "users", key = "#id")
     })
     @Transactional
@@ -339,26 +616,20 @@ public class UserService {
                 .orElseThrow(() -> new UserNotFoundException(PREFIX_WITH_ID + id + NOT_FOUND_SUFFIX));
 
         String email = user.getEmail();
+        // Карты удаляются каскадно вместе с пользователем
+        List<Long> cardIds = user.getCards().stream().map(CardInfo::getId).toList();
 
         // Удаляем из user-service базы данных
         userRepository.deleteById(id);
+        cacheWriter.evictAfterCommit(CARD_CACHE, cardIds);
+        // Сбрасываем закэшированное соответствие email -> id
+        userIdResolver.evict(email);
 
-        // Удаляем из authentication-service (auth_db) для синхронизации
+        // Удаление из authentication-service (auth_db) для синхронизации доставляется через outbox:
+        // событие фиксируется в этой же транзакции, HTTP вызов выполняет OutboxDispatcher в фоне.
         // Это позволяет пользователю зарегистрироваться снова с тем же email
         if (email != null && !email.isBlank()) {
-            org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(UserService.class);
-            log.info("Attempting to delete user {} from authentication-service after deletion from user-service", email);
-            try {
-                authServiceClient.deleteUser(email);
-                // Успешное удаление логируется внутри AuthServiceClient
-            } catch (Exception e) {
-                // Логируем ошибку, но не прерываем удаление из user-service
-                // Пользователь уже удален из us_db, даже если удаление из auth_db не удалось
-                log.error("Failed to delete user {} from authentication-service: {}", email, e.getMessage(), e);
-            }
-        } else {
-            org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(UserService.class);
-            log.warn("Cannot delete user from authentication-service: email is null or blank");
+            outboxService.enqueue(OutboxEventType.USER_DELETED, email);
         }
     }
 }
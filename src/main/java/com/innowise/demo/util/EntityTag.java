@@ -0,0 +1,85 @@
+package com.innowise.demo.util;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+
+import com.innowise.demo.dto.CardInfoDto;
+import com.innowise.demo.dto.UserDto;
+
+/**
+ * Строгие ETag для ответов с пользователем и картой.
+ *
+ * ETag строится из id и версий строк (@Version), которые лежат в кэшированных DTO, поэтому
+ * не требует ни запроса к БД, ни сериализации тела. ETag пользователя включает id и версии
+ * его карт: изменение, добавление или удаление карты меняет тело ответа, не меняя строку users.
+ * Для DTO без версии (например, записи кэша, созданные до появления версий) ETag не выдается.
+ *
+ * При совпадении ETag с If-None-Match Spring MVC (HttpEntityMethodProcessor) отвечает 304
+ * и не сериализует тело.
+ */
+public final class EntityTag {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private EntityTag() {
+    }
+
+    public static ResponseEntity<UserDto> ok(UserDto user) {
+        return ok(user, of(user));
+    }
+
+    public static ResponseEntity<CardInfoDto> ok(CardInfoDto card) {
+        return ok(card, of(card));
+    }
+
+    public static Optional<String> of(UserDto user) {
+        if (user.getId() == null || user.getVersion() == null) {
+            return Optional.empty();
+        }
+        long cardsHash = FNV_OFFSET_BASIS;
+        List<CardInfoDto> cards = user.getCards();
+        if (cards != null) {
+            for (CardInfoDto card : cards) {
+                if (card.getId() == null || card.getVersion() == null) {
+                    return Optional.empty();
+                }
+                cardsHash = mix(mix(cardsHash, card.getId()), card.getVersion());
+            }
+        }
+        return Optional.of("\"u" + user.getId() + "-" + user.getVersion() + "-" + Long.toHexString(cardsHash) + "\"");
+    }
+
+    public static Optional<String> of(CardInfoDto card) {
+        if (card.getId() == null || card.getVersion() == null) {
+            return Optional.empty();
+        }
+        return Optional.of("\"c" + card.getId() + "-" + card.getVersion() + "\"");
+    }
+
+    /**
+     * private, no-cache: клиент хранит ответ и перепроверяет его условным запросом.
+     * Без явного Cache-Control Spring Security запретил бы хранение (no-store).
+     * body может отличаться от DTO, из которого получен etag (например, DTO с фильтром полей).
+     */
+    public static <T> ResponseEntity<T> ok(T body, Optional<String> etag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate());
+        etag.ifPresent(response::eTag);
+        return response.body(body);
+    }
+
+    /**
+     * FNV-1a по 8 байтам значения.
+     */
+    private static long mix(long hash, long value) {
+        for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+            hash ^= (value >>> shift) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,63 @@
+package com.innowise.demo.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Ответ в формате NDJSON (application/x-ndjson): один JSON объект на строку.
+ *
+ * Тело пишется в потоке асинхронной обработки запроса по мере получения элементов,
+ * без сборки списка в памяти. Запись не сбрасывается после каждого элемента: данные уходят
+ * клиенту по заполнении буфера ответа, а если клиент читает медленнее, запись блокирует
+ * источник элементов (например, чтение курсора БД).
+ */
+public final class NdjsonResponse {
+
+    private NdjsonResponse() {
+    }
+
+    /**
+     * @param producer передает элементы в переданный ему sink по одному
+     */
+    public static <T> ResponseEntity<StreamingResponseBody> of(ObjectMapper objectMapper,
+                                                               Consumer<Consumer<T>> producer) {
+        ObjectWriter writer = objectMapper.writer()
+                .withRootValueSeparator("\n")
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                // поток ответа закрывает Spring MVC
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        StreamingResponseBody body = out -> {
+            boolean[] written = {false};
+            try (SequenceWriter sequence = writer.writeValues(out)) {
+                producer.accept(item -> {
+                    try {
+                        sequence.write(item);
+                        written[0] = true;
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            } catch (UncheckedIOException ex) {
+                // Например, клиент закрыл соединение: чтение источника прекращается
+                throw ex.getCause();
+            }
+            if (written[0]) {
+                out.write('\n');
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
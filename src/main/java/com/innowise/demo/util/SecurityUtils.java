@@ -1,12 +1,13 @@
 package com.innowise.demo.util;
 
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.oauth2.jwt.Jwt;
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import com.innowise.demo.security.AuthenticatedUser;
 
 /**
  * Утилитный класс для работы с Spring Security и проверки прав доступа.
+ * Все проверки выполняются по заранее вычисленному {@link AuthenticatedUser};
+ * новый код должен получать его напрямую (параметр контроллера или {@link AuthenticatedUser#current()}).
  */
 public class SecurityUtils {
 
@@ -15,12 +16,8 @@ public class SecurityUtils {
      * Возвращает true, если пользователь имеет роль ADMIN.
      */
     public static boolean isAdmin(Authentication authentication) {
-        if (authentication == null) {
-            return false;
-        }
-        return authentication.getAuthorities().stream()
-                .map(GrantedAuthority::getAuthority)
-                .anyMatch(authority -> authority.equals("ROLE_ADMIN"));
+        AuthenticatedUser user = AuthenticatedUser.from(authentication);
+        return user != null && user.isAdmin();
     }
 
     /**
@@ -28,35 +25,11 @@ public class SecurityUtils {
      * Выбрасывает IllegalStateException, если токен не содержит email.
      */
     public static String getEmailFromToken(Authentication authentication) {
-        if (authentication == null) {
+        AuthenticatedUser user = AuthenticatedUser.from(authentication);
+        if (user == null) {
             throw new IllegalStateException("Authentication is required");
         }
-
-        Jwt jwt = extractJwt(authentication);
-        if (jwt == null) {
-            throw new IllegalStateException("JWT token is required");
-        }
-
-        String email = jwt.getSubject();
-        if (email == null || email.isBlank()) {
-            throw new IllegalStateException("Email (sub claim) not found in JWT token");
-        }
-
-        return email;
-    }
-
-    /**
-     * Извлекает JWT из Authentication объекта.
-     * Возвращает JWT токен или null, если не удалось извлечь.
-     */
-    private static Jwt extractJwt(Authentication authentication) {
-        if (authentication instanceof JwtAuthenticationToken jwtAuthenticationToken) {
-            return jwtAuthenticationToken.getToken();
-        }
-        if (authentication != null && authentication.getPrincipal() instanceof Jwt jwt) {
-            return jwt;
-        }
-        return null;
+        return user.getEmail();
     }
 
     /**
@@ -65,20 +38,7 @@ public class SecurityUtils {
      * Возвращает true, если пользователь имеет доступ к ресурсу.
      */
     public static boolean hasAccess(Authentication authentication, String resourceOwnerEmail) {
-        if (authentication == null) {
-            return false;
-        }
-
-        if (isAdmin(authentication)) {
-            return true;
-        }
-
-        try {
-            String userEmail = getEmailFromToken(authentication);
-            return userEmail.equals(resourceOwnerEmail);
-        } catch (IllegalStateException e) {
-            return false;
-        }
+        AuthenticatedUser user = AuthenticatedUser.from(authentication);
+        return user != null && user.canAccess(resourceOwnerEmail);
     }
 }
-
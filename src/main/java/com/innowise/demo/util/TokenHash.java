@@ -0,0 +1,23 @@
+package com.innowise.demo.util;
+
+/**
+ * Быстрый 64-битный хэш (FNV-1a) для использования строки токена в качестве ключа локальных кэшей.
+ * Хэш не криптостойкий: при попадании в кэш вызывающий код обязан сверить исходный токен.
+ */
+public final class TokenHash {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private TokenHash() {
+    }
+
+    public static long of(String token) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < token.length(); i++) {
+            hash ^= token.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,123 @@
+package com.innowise.demo.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class TransactionAwareCacheManagerTest {
+
+    private final CacheManager targetCacheManager = mock(CacheManager.class);
+    private final Cache targetCache = mock(Cache.class);
+    private final RedisBulkCache redisBulkCache = mock(RedisBulkCache.class);
+    private final TransactionAwareCacheManager cacheManager =
+            new TransactionAwareCacheManager(targetCacheManager, redisBulkCache);
+
+    @BeforeEach
+    void setUp() {
+        when(targetCacheManager.getCache("users")).thenReturn(targetCache);
+        when(targetCache.getName()).thenReturn("users");
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        TransactionSynchronizationManager.unbindResourceIfPossible(targetCacheManager);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        synchronizations.forEach(sync -> sync.afterCompletion(status));
+    }
+
+    @Test
+    @DisplayName("Вне транзакции операции выполняются сразу")
+    void put_WithoutTransaction_ShouldWriteImmediately() {
+        // when
+        cacheManager.getCache("users").put(1L, "user");
+
+        // then
+        verify(targetCache).put(1L, "user");
+        verifyNoInteractions(redisBulkCache);
+    }
+
+    @Test
+    @DisplayName("Операции транзакции схлопываются и применяются одним набором команд после фиксации")
+    void operations_InTransaction_ShouldBeCoalescedAndAppliedAfterCommit() {
+        // given
+        TransactionSynchronizationManager.initSynchronization();
+        Cache cache = cacheManager.getCache("users");
+
+        // when
+        cache.put(1L, "stale");
+        cache.put(1L, "fresh");
+        cache.put(2L, "deleted");
+        cache.evict(2L);
+        cache.evict(3L);
+        cache.put(3L, "recreated");
+
+        // then
+        verifyNoInteractions(redisBulkCache);
+        verify(targetCache, never()).put(any(), any());
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        verify(redisBulkCache).evictAll("users", Set.of(2L));
+        verify(redisBulkCache).putAll(Map.of("users", Map.of(1L, "fresh", 3L, "recreated")));
+    }
+
+    @Test
+    @DisplayName("clear отменяет предыдущие операции кэша в транзакции")
+    void clear_InTransaction_ShouldDropEarlierOperations() {
+        // given
+        TransactionSynchronizationManager.initSynchronization();
+        Cache cache = cacheManager.getCache("users");
+
+        // when
+        cache.put(1L, "user");
+        cache.clear();
+        cache.put(2L, "user");
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        // then
+        verify(targetCache).clear();
+        verify(redisBulkCache).putAll(Map.of("users", Map.of(2L, "user")));
+    }
+
+    @Test
+    @DisplayName("При откате транзакции изменения отбрасываются")
+    void operations_OnRollback_ShouldBeDropped() {
+        // given
+        TransactionSynchronizationManager.initSynchronization();
+        Cache cache = cacheManager.getCache("users");
+        cache.put(1L, "user");
+        cache.clear();
+
+        // when
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // then
+        verify(redisBulkCache, never()).putAll(anyMap());
+        verify(targetCache, never()).clear();
+        verify(targetCache, never()).put(any(), any());
+    }
+}
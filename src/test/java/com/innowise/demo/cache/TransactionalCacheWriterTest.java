@@ -0,0 +1,67 @@
+package com.innowise.demo.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class TransactionalCacheWriterTest {
+
+    private final CacheManager targetCacheManager = mock(CacheManager.class);
+    private final RedisBulkCache redisBulkCache = mock(RedisBulkCache.class);
+    private final TransactionalCacheWriter writer = new TransactionalCacheWriter(redisBulkCache,
+            new TransactionAwareCacheManager(targetCacheManager, redisBulkCache));
+
+    @AfterEach
+    void clearSynchronization() {
+        TransactionSynchronizationManager.unbindResourceIfPossible(targetCacheManager);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Вне транзакции записи во все кэши отправляются сразу одним pipeline")
+    void putAfterCommit_WithoutTransaction_ShouldWriteImmediately() {
+        // when
+        writer.putAfterCommit(Map.of("users", Map.of(1L, "user")));
+
+        // then
+        verify(redisBulkCache).putAll(Map.of("users", Map.of(1L, "user")));
+    }
+
+    @Test
+    @DisplayName("В транзакции запись откладывается до фиксации")
+    void putAfterCommit_InTransaction_ShouldWriteAfterCommit() {
+        // given
+        Cache users = mock(Cache.class);
+        Cache cards = mock(Cache.class);
+        when(targetCacheManager.getCache("users")).thenReturn(users);
+        when(targetCacheManager.getCache("cardCache")).thenReturn(cards);
+        when(users.getName()).thenReturn("users");
+        when(cards.getName()).thenReturn("cardCache");
+        TransactionSynchronizationManager.initSynchronization();
+
+        // when
+        writer.putAfterCommit(Map.of("users", Map.of(1L, "user")));
+        writer.evictAfterCommit("cardCache", List.of(5L));
+
+        // then
+        verifyNoInteractions(redisBulkCache);
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(redisBulkCache).putAll(Map.of("users", Map.of(1L, "user"), "cardCache", Map.of()));
+        verify(redisBulkCache).evictAll("cardCache", Set.of(5L));
+    }
+}
@@ -0,0 +1,76 @@
+package com.innowise.demo.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innowise.demo.dto.UserDto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserJsonCacheTest {
+
+    private final CacheManager cacheManager = mock(CacheManager.class);
+    private final RedisBulkCache redisBulkCache = mock(RedisBulkCache.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final UserJsonCache userJsonCache = new UserJsonCache(cacheManager, redisBulkCache, objectMapper);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("put сохраняет JSON по id и email, запись читается с теми же метаданными и телом")
+    void put_ShouldStoreJsonReadableById() throws Exception {
+        // given
+        UserDto user = new UserDto();
+        user.setId(1L);
+        user.setEmail("test@example.com");
+        user.setVersion(3L);
+        Cache cache = mock(Cache.class);
+        when(cacheManager.getCache(UserJsonCache.CACHE_NAME)).thenReturn(cache);
+
+        // when
+        CachedUserJson json = userJsonCache.put(user).orElseThrow();
+
+        // then
+        ArgumentCaptor<Map<String, byte[]>> entries = ArgumentCaptor.forClass(Map.class);
+        verify(redisBulkCache).putAll(eq(UserJsonCache.CACHE_NAME), entries.capture());
+        assertEquals(2, entries.getValue().size());
+        byte[] stored = entries.getValue().get("id_1");
+        assertSame(stored, entries.getValue().get("email_test@example.com"));
+
+        when(cache.get("id_1", byte[].class)).thenReturn(stored);
+        CachedUserJson cached = userJsonCache.findById(1L).orElseThrow();
+        assertEquals("test@example.com", cached.email());
+        assertEquals(json.etag(), cached.etag());
+        assertTrue(cached.etag().isPresent());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        cached.writeTo(body);
+        assertArrayEquals(objectMapper.writeValueAsBytes(user), body.toByteArray());
+        assertEquals(body.size(), cached.length());
+    }
+
+    @Test
+    @DisplayName("Запись в неизвестном формате считается промахом")
+    void findById_WithUnknownFormat_ShouldReturnEmpty() {
+        // given
+        Cache cache = mock(Cache.class);
+        when(cacheManager.getCache(UserJsonCache.CACHE_NAME)).thenReturn(cache);
+        when(cache.get("id_1", byte[].class)).thenReturn("{\"id\":1}".getBytes());
+
+        // when & then
+        assertEquals(Optional.empty(), userJsonCache.findById(1L));
+    }
+}
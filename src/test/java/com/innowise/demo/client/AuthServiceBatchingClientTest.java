@@ -0,0 +1,177 @@
+package com.innowise.demo.client;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innowise.demo.client.dto.UpdateUserProfileRequest;
+import com.innowise.demo.client.dto.UserSyncBatchRequest;
+import com.sun.net.httpserver.HttpServer;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Тесты пакетной синхронизации против локальной заглушки authentication-service.
+ */
+class AuthServiceBatchingClientTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<UserSyncBatchRequest> receivedBatches = new CopyOnWriteArrayList<>();
+    private final List<String> receivedSingleDeletes = new CopyOnWriteArrayList<>();
+    private volatile int batchStatus = 200;
+    private volatile int singleDeleteStatus = 204;
+
+    private HttpServer authServer;
+    private AuthServiceClient authServiceClient;
+    private AuthServiceBatchingClient batchingClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        authServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        // Connection: close - каждый запрос на новом соединении, без зависимости от keep-alive клиента и JDK
+        authServer.createContext("/auth/v1/internal/sync/users/batch", exchange -> {
+            receivedBatches.add(objectMapper.readValue(exchange.getRequestBody(), UserSyncBatchRequest.class));
+            exchange.getResponseHeaders().set("Connection", "close");
+            exchange.sendResponseHeaders(batchStatus, -1);
+            exchange.close();
+        });
+        authServer.createContext("/auth/v1/internal/sync/users/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            receivedSingleDeletes.add(path.substring(path.lastIndexOf('/') + 1));
+            exchange.getResponseHeaders().set("Connection", "close");
+            exchange.sendResponseHeaders(singleDeleteStatus, -1);
+            exchange.close();
+        });
+        authServer.start();
+
+        authServiceClient = new AuthServiceClient(new RestTemplate(),
+                CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults(),
+                "http://localhost:" + authServer.getAddress().getPort(), "test-internal-api-key",
+                100, Duration.ofMinutes(5), Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (batchingClient != null) {
+            batchingClient.destroy();
+        }
+        authServer.stop(0);
+    }
+
+    private static void awaitAll(List<CompletableFuture<Void>> results) throws Exception {
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Операции накапливаются и отправляются пакетами не больше max-size")
+    void submit_ShouldSplitIntoBatchesOfMaxSize() throws Exception {
+        // given
+        batchingClient = new AuthServiceBatchingClient(authServiceClient, 50, Duration.ofSeconds(10), true);
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 120; i++) {
+            results.add(batchingClient.deleteUser("user" + i + "@example.com"));
+        }
+        batchingClient.flush();
+        awaitAll(results);
+
+        // then
+        assertEquals(3, receivedBatches.size());
+        assertEquals(120, receivedBatches.stream().mapToInt(batch -> batch.deletedEmails().size()).sum());
+        assertEquals(50, receivedBatches.get(0).deletedEmails().size());
+    }
+
+    @Test
+    @DisplayName("Неполный пакет отправляется по истечении window")
+    void submit_ShouldFlushPartialBatchAfterWindow() throws Exception {
+        // given
+        batchingClient = new AuthServiceBatchingClient(authServiceClient, 100, Duration.ofMillis(50), true);
+
+        // when
+        CompletableFuture<Void> deletion = batchingClient.deleteUser("a@example.com");
+        CompletableFuture<Void> update = batchingClient.updateUserProfile(
+                new UpdateUserProfileRequest("old@example.com", "new@example.com", "Ivan", "Ivanov"));
+        awaitAll(List.of(deletion, update));
+
+        // then
+        assertEquals(1, receivedBatches.size());
+        assertEquals(List.of("a@example.com"), receivedBatches.get(0).deletedEmails());
+        assertEquals("new@example.com", receivedBatches.get(0).profileUpdates().get(0).newLogin());
+    }
+
+    @Test
+    @DisplayName("Ошибка пакетного запроса завершает с ошибкой все операции пакета")
+    void submit_ShouldFailAllOperations_WhenBatchRejected() {
+        // given
+        batchStatus = 503;
+        batchingClient = new AuthServiceBatchingClient(authServiceClient, 100, Duration.ofSeconds(10), true);
+
+        // when
+        CompletableFuture<Void> first = batchingClient.deleteUser("a@example.com");
+        CompletableFuture<Void> second = batchingClient.deleteUser("b@example.com");
+        batchingClient.flush();
+
+        // then
+        for (CompletableFuture<Void> result : List.of(first, second)) {
+            ExecutionException ex = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, ex.getCause());
+        }
+    }
+
+    @Test
+    @DisplayName("Без пакетного endpoint операции отправляются по одной")
+    void submit_BulkDisabled_ShouldSendSingleRequests() throws Exception {
+        // given
+        batchingClient = new AuthServiceBatchingClient(authServiceClient, 100, Duration.ofSeconds(10), false);
+
+        // when
+        List<CompletableFuture<Void>> results = List.of(
+                batchingClient.deleteUser("a@example.com"),
+                batchingClient.deleteUser("b@example.com"));
+        batchingClient.flush();
+        awaitAll(results);
+
+        // then
+        assertEquals(0, receivedBatches.size());
+        assertEquals(List.of("a@example.com", "b@example.com"), receivedSingleDeletes);
+    }
+
+    @Test
+    @DisplayName("Без пакетного endpoint (404) пакет отправляется по одной операции, 404 удаления - успех")
+    void submit_BatchEndpointMissing_ShouldFallBackToSingleRequests() throws Exception {
+        // given
+        batchStatus = 404;
+        singleDeleteStatus = 404;
+        batchingClient = new AuthServiceBatchingClient(authServiceClient, 100, Duration.ofSeconds(10), true);
+
+        // when
+        List<CompletableFuture<Void>> results = List.of(
+                batchingClient.deleteUser("a@example.com"),
+                batchingClient.deleteUser("b@example.com"));
+        batchingClient.flush();
+        awaitAll(results);
+
+        // then
+        assertEquals(1, receivedBatches.size());
+        assertEquals(List.of("a@example.com", "b@example.com"), receivedSingleDeletes);
+    }
+}
@@ -0,0 +1,199 @@
+package com.innowise.demo.client;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import com.innowise.demo.client.dto.TokenValidationResponse;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthServiceClientTest {
+
+    private static final TokenValidationResponse VALID =
+            new TokenValidationResponse(true, "test@example.com", "USER");
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private AuthServiceClient client;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        client = new AuthServiceClient(restTemplate, circuitBreakerRegistry, BulkheadRegistry.ofDefaults(),
+                "http://auth", "key", 100, Duration.ofMinutes(5), Duration.ofSeconds(10));
+    }
+
+    private static String token(Instant expiresAt) {
+        return new PlainJWT(new JWTClaimsSet.Builder()
+                .subject("test@example.com")
+                .expirationTime(Date.from(expiresAt))
+                .build()).serialize();
+    }
+
+    private void verifyRemoteCalls(int times) {
+        verify(restTemplate, times(times))
+                .postForEntity(anyString(), any(), eq(TokenValidationResponse.class));
+    }
+
+    @Test
+    @DisplayName("Повторная проверка того же токена берется из кэша")
+    void validateToken_ShouldCacheValidResult() {
+        // given
+        String token = token(Instant.now().plusSeconds(600));
+        when(restTemplate.postForEntity(anyString(), any(), eq(TokenValidationResponse.class)))
+                .thenReturn(ResponseEntity.ok(VALID));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        client.bindTo(registry);
+
+        // when
+        Optional<TokenValidationResponse> first = client.validateToken(token);
+        Optional<TokenValidationResponse> second = client.validateToken(token);
+
+        // then
+        assertEquals(Optional.of(VALID), first);
+        assertEquals(Optional.of(VALID), second);
+        verifyRemoteCalls(1);
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1L, registry.get("auth.service.validate").timer().count());
+    }
+
+    @Test
+    @DisplayName("Отклоненный токен кэшируется как отрицательный результат")
+    void validateToken_ShouldCacheRejectedToken() {
+        // given
+        String token = token(Instant.now().plusSeconds(600));
+        when(restTemplate.postForEntity(anyString(), any(), eq(TokenValidationResponse.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.UNAUTHORIZED));
+
+        // when & then
+        assertTrue(client.validateToken(token).isEmpty());
+        assertTrue(client.validateToken(token).isEmpty());
+        verifyRemoteCalls(1);
+    }
+
+    @Test
+    @DisplayName("Ошибка authentication-service не кэшируется")
+    void validateToken_ShouldNotCacheServerError() {
+        // given
+        String token = token(Instant.now().plusSeconds(600));
+        when(restTemplate.postForEntity(anyString(), any(), eq(TokenValidationResponse.class)))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE))
+                .thenReturn(ResponseEntity.ok(VALID));
+
+        // when & then
+        assertTrue(client.validateToken(token).isEmpty());
+        assertEquals(Optional.of(VALID), client.validateToken(token));
+        verifyRemoteCalls(2);
+    }
+
+    @Test
+    @DisplayName("Результат для истекшего токена не переживает его exp")
+    void validateToken_ShouldNotCacheBeyondTokenExpiry() {
+        // given
+        String token = token(Instant.now().minusSeconds(1));
+        when(restTemplate.postForEntity(anyString(), any(), eq(TokenValidationResponse.class)))
+                .thenReturn(ResponseEntity.ok(VALID));
+
+        // when
+        client.validateToken(token);
+        client.validateToken(token);
+
+        // then
+        verifyRemoteCalls(2);
+    }
+
+    @Test
+    @DisplayName("Одновременные проверки одного токена объединяются в один вызов")
+    void validateToken_ShouldCoalesceConcurrentCalls() throws Exception {
+        // given
+        String token = token(Instant.now().plusSeconds(600));
+        CountDownLatch release = new CountDownLatch(1);
+        when(restTemplate.postForEntity(anyString(), any(), eq(TokenValidationResponse.class)))
+                .thenAnswer(invocation -> {
+                    release.await(5, TimeUnit.SECONDS);
+                    return ResponseEntity.ok(VALID);
+                });
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            // when
+            List<Future<Optional<TokenValidationResponse>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> client.validateToken(token)));
+            }
+            Thread.sleep(200);
+            release.countDown();
+
+            // then
+            for (Future<Optional<TokenValidationResponse>> result : results) {
+                assertEquals(Optional.of(VALID), result.get(5, TimeUnit.SECONDS));
+            }
+            verifyRemoteCalls(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Разомкнутый circuit breaker: проверка и удаление отклоняются без вызова сервиса")
+    void openCircuit_ShouldFailFastWithoutRemoteCall() {
+        // given
+        circuitBreakerRegistry.circuitBreaker("auth-validate").transitionToOpenState();
+        circuitBreakerRegistry.circuitBreaker("auth-delete-user").transitionToOpenState();
+
+        // when & then
+        assertTrue(client.validateToken(token(Instant.now().plusSeconds(600))).isEmpty());
+        assertThrows(CallNotPermittedException.class, () -> client.deleteUser("test@example.com"));
+        verifyRemoteCalls(0);
+        verify(restTemplate, never()).exchange(anyString(), eq(HttpMethod.DELETE), any(), eq(Void.class));
+    }
+
+    @Test
+    @DisplayName("Заголовок без Bearer не приводит к вызову authentication-service")
+    void validateAuthorizationHeader_WithoutBearer_ShouldSkipRemoteCall() {
+        assertFalse(client.validateAuthorizationHeader("Basic abc").isPresent());
+        verifyRemoteCalls(0);
+    }
+}
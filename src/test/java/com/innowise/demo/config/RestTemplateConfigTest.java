@@ -0,0 +1,91 @@
+package com.innowise.demo.config;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RestTemplateConfigTest {
+
+    private HttpServer server;
+    private String baseUrl;
+
+    // ApplicationConversionService нужен для @Value типа Duration ("200ms"), как в SpringApplication
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withInitializer(context -> context.getBeanFactory()
+                    .setConversionService(ApplicationConversionService.getSharedInstance()))
+            .withBean(RestTemplateBuilder.class, RestTemplateBuilder::new)
+            .withUserConfiguration(RestTemplateConfig.class)
+            .withPropertyValues(
+                    "authentication.service.http.read-timeout=200ms",
+                    "authentication.service.http.max-per-route=2");
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/fast", exchange -> {
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("Запрос к медленному сервису прерывается по read-timeout")
+    void restTemplate_SlowResponse_ShouldTimeout() {
+        contextRunner.run(context -> {
+            RestTemplate restTemplate = context.getBean(RestTemplate.class);
+
+            assertEquals("ok", restTemplate.getForObject(baseUrl + "/fast", String.class));
+            assertThrows(ResourceAccessException.class,
+                    () -> restTemplate.getForObject(baseUrl + "/slow", String.class));
+        });
+    }
+
+    @Test
+    @DisplayName("Метрики пула соединений публикуются в Micrometer")
+    void poolMetrics_ShouldBeRegistered() {
+        contextRunner.run(context -> {
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            context.getBean(MeterBinder.class).bindTo(registry);
+
+            assertNotNull(registry.find("httpcomponents.httpclient.pool.route.max.default").gauge());
+            assertEquals(2.0, registry.get("httpcomponents.httpclient.pool.route.max.default").gauge().value());
+        });
+    }
+}
@@ -11,26 +11,34 @@ import org.mockito.MockedStatic;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innowise.demo.dto.CardBatchRequest;
+import com.innowise.demo.dto.CardBatchResponse;
 import com.innowise.demo.dto.CardInfoDto;
-import com.innowise.demo.dto.UserDto;
+import com.innowise.demo.model.CardInfo;
 import com.innowise.demo.exception.CardInfoNotFoundException;
+import com.innowise.demo.security.UserIdResolver;
 import com.innowise.demo.service.CardInfoService;
-import com.innowise.demo.service.UserService;
 import com.innowise.demo.util.SecurityUtils;
 
 import static java.util.List.of;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -39,6 +47,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+@Import(PageSizeGuard.class)
 @WebMvcTest(controllers = CardInfoController.class, excludeAutoConfiguration = {
         org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration.class,
         org.springframework.boot.autoconfigure.security.oauth2.resource.servlet.OAuth2ResourceServerAutoConfiguration.class
@@ -56,7 +65,7 @@ class CardInfoControllerTest {
     private CardInfoService cardInfoService;
 
     @MockitoBean
-    private UserService userService;
+    private UserIdResolver userIdResolver;
 
     private CardInfoDto cardInfoDto;
 
@@ -112,14 +121,9 @@ class CardInfoControllerTest {
         createdDto.setExpirationDate(LocalDate.of(2030, 12, 31));
         createdDto.setUserId(1L);
 
-        //создаём тестового юзера, которого будет возвращать мок
-        UserDto userDto = new UserDto();
-        userDto.setId(1L);
-        userDto.setEmail("test@example.com");
-
         //when
-        //Когда кто-то вызовет userService.findUserById(1L), верни этот объект userDto, т.е. мокирование поведения метода сервиса
-        when(userService.findUserById(1L)).thenReturn(userDto);
+        // Текущий пользователь - владелец карт с userId = 1 (проверка доступа сравнивает id)
+        when(userIdResolver.isOwner(any(), eq(1L))).thenReturn(true);
         when(cardInfoService.save(any(CardInfoDto.class))).thenReturn(createdDto);
 
         //Внутри этого блока try ниже — все вызовы SecurityUtils будут мокнутыми(т.к. SecurityUtils  -статический класс)
@@ -173,18 +177,12 @@ class CardInfoControllerTest {
     @Test
     @DisplayName("GET /api/v1/cards/1 - успешное получение карты по ID")
     void getCardInfoById_ShouldReturnCard() throws Exception {
-        // given
-        // Создаём тестового пользователя, которого будет возвращать мок
-        UserDto userDto = new UserDto();
-        userDto.setId(1L);
-        userDto.setEmail("test@example.com");
-
-        //when
+        // given & when
         // Когда кто-то вызовет cardInfoService.getCardInfoById(1L), верни cardInfoDto
         // (это объект, созданный в setUp() с данными карты)
         when(cardInfoService.getCardInfoById(1L)).thenReturn(cardInfoDto);
-        // Когда кто-то вызовет userService.findUserById(1L), верни userDto
-        when(userService.findUserById(1L)).thenReturn(userDto);
+        // Текущий пользователь - владелец карт с userId = 1 (проверка доступа сравнивает id)
+        when(userIdResolver.isOwner(any(), eq(1L))).thenReturn(true);
 
         // Внутри этого блока try — все вызовы SecurityUtils будут мокнутыми
         try (MockedStatic<SecurityUtils> mockedSecurityUtils = mockStatic(SecurityUtils.class)) {
@@ -206,6 +204,23 @@ class CardInfoControllerTest {
         }
     }
 
+    @Test
+    @DisplayName("GET /api/v1/cards/1 - чужая карта из кэша возвращает 404")
+    void getCardInfoById_ShouldReturnNotFound_WhenCardBelongsToAnotherUser() throws Exception {
+        // given & when
+        // Сервис вернул карту пользователя с id = 1 (например, из общего кэша), а текущий пользователь - другой
+        when(cardInfoService.getCardInfoById(1L)).thenReturn(cardInfoDto);
+        when(userIdResolver.isOwner(any(), eq(1L))).thenReturn(false);
+
+        JwtAuthenticationToken authentication = createMockAuthentication("other@example.com", "USER");
+
+        // then
+        // Чужая карта неотличима от несуществующей
+        mockMvc.perform(get("/api/v1/cards/1")
+                        .principal(authentication))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     @DisplayName("GET /api/v1/cards/999 - карта не найдена")
     void getCardInfoById_ShouldReturnNotFound_WhenCardNotFound() throws Exception {
@@ -293,6 +308,18 @@ class CardInfoControllerTest {
         }
     }
 
+    @Test
+    @DisplayName("GET /api/v1/cards?page=-1 - отрицательный номер страницы возвращает 400")
+    void getAllCardInfos_WithNegativePage_ShouldReturnBadRequest() throws Exception {
+        // when & then
+        mockMvc.perform(get("/api/v1/cards")
+                        .param("page", "-1")
+                        .principal(createMockAuthentication("test@example.com", "USER")))
+                .andExpect(status().isBadRequest());
+
+        verify(cardInfoService, never()).getAllCardInfos(anyInt(), anyInt());
+    }
+
     @Test
     @DisplayName("PUT /api/v1/cards/1 - успешное обновление карты")
     void updateCardInfo_ShouldReturnUpdatedCard() throws Exception {
@@ -312,17 +339,8 @@ class CardInfoControllerTest {
         updatedDto.setExpirationDate(LocalDate.of(2035, 6, 30));
         updatedDto.setUserId(1L);
 
-        // Создаём тестового пользователя, которого будет возвращать мок
-        UserDto userDto = new UserDto();
-        userDto.setId(1L);
-        userDto.setEmail("test@example.com");
-
         //when
-        // Когда кто-то вызовет cardInfoService.getCardInfoById(1L), верни cardInfoDto
-        // (это нужно для проверки прав доступа — контроллер сначала получает карту)
-        when(cardInfoService.getCardInfoById(1L)).thenReturn(cardInfoDto);
-        // Когда кто-то вызовет userService.findUserById(1L), верни userDto
-        when(userService.findUserById(1L)).thenReturn(userDto);
+        // Проверка прав выполняется в сервисе (запрос с фильтром по владельцу), контроллер карту заранее не загружает
         // Когда кто-то вызовет cardInfoService.updateCardInfo(1L, любой CardInfoDto), верни updatedDto
         when(cardInfoService.updateCardInfo(eq(1L), any(CardInfoDto.class))).thenReturn(updatedDto);
 
@@ -360,10 +378,9 @@ class CardInfoControllerTest {
         updateDto.setUserId(1L);
 
         //when
-        // Когда кто-то вызовет cardInfoService.getCardInfoById(999L), выбрось исключение
-        // Это имитирует ситуацию, когда карты с таким ID не существует в базе данных
-        // Контроллер сначала получает карту для проверки прав доступа, поэтому исключение выбросится здесь
-        when(cardInfoService.getCardInfoById(999L))
+        // Когда кто-то вызовет cardInfoService.updateCardInfo(999L, ...), выбрось исключение
+        // Это имитирует ситуацию, когда карты с таким ID нет среди карт текущего пользователя
+        when(cardInfoService.updateCardInfo(eq(999L), any(CardInfoDto.class)))
                 .thenThrow(new CardInfoNotFoundException("Card with id 999 not found!"));
 
         // Внутри этого блока try — все вызовы SecurityUtils будут мокнутыми
@@ -381,6 +398,29 @@ class CardInfoControllerTest {
         }
     }
 
+    @Test
+    @DisplayName("PUT /api/v1/cards/1 - одновременное изменение карты возвращает 409")
+    void updateCardInfo_ShouldReturnConflict_WhenCardModifiedConcurrently() throws Exception {
+        // given
+        CardInfoDto updateDto = new CardInfoDto();
+        updateDto.setNumber("9999888877776666");
+        updateDto.setHolder("Updated Holder");
+        updateDto.setExpirationDate(LocalDate.of(2035, 6, 30));
+        updateDto.setUserId(1L);
+
+        // when
+        when(cardInfoService.updateCardInfo(eq(1L), any(CardInfoDto.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(CardInfo.class, 1L));
+
+        // then
+        mockMvc.perform(put("/api/v1/cards/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateDto))
+                        .principal(createMockAuthentication("test@example.com", "USER")))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code").value("CONCURRENT_MODIFICATION"));
+    }
+
     @Test
     @DisplayName("PUT /api/v1/cards/1 - валидация: пустой holder")
     void updateCardInfo_ShouldReturnBadRequest_WhenHolderIsBlank() throws Exception {
@@ -412,19 +452,8 @@ class CardInfoControllerTest {
     @Test
     @DisplayName("DELETE /api/v1/cards/1 - успешное удаление карты")
     void deleteCardInfo_ShouldReturnNoContent() throws Exception {
-        // given
-        // Создаём тестового пользователя, которого будет возвращать мок
-        UserDto userDto = new UserDto();
-        userDto.setId(1L);
-        userDto.setEmail("test@example.com");
-
-        //when
-        // Когда кто-то вызовет cardInfoService.getCardInfoById(1L), верни cardInfoDto
-        // (это нужно для проверки прав доступа — контроллер сначала получает карту)
-        when(cardInfoService.getCardInfoById(1L)).thenReturn(cardInfoDto);
-        // Когда кто-то вызовет userService.findUserById(1L), верни userDto
-        when(userService.findUserById(1L)).thenReturn(userDto);
-
+        // given & when
+        // Контроллер не загружает карту заранее: загрузка и удаление выполняются в сервисе
         // Внутри этого блока try — все вызовы SecurityUtils будут мокнутыми
         try (MockedStatic<SecurityUtils> mockedSecurityUtils = mockStatic(SecurityUtils.class)) {
             // Создаём мок аутентификации — как будто администратор уже залогинен
@@ -446,11 +475,10 @@ class CardInfoControllerTest {
     @DisplayName("DELETE /api/v1/cards/999 - карта не найдена для удаления")
     void deleteCardInfo_ShouldReturnNotFound_WhenCardNotFound() throws Exception {
         // given & when
-        // Когда кто-то вызовет cardInfoService.getCardInfoById(999L), выбрось исключение
+        // Когда кто-то вызовет cardInfoService.deleteCardInfo(999L), выбрось исключение
         // Это имитирует ситуацию, когда карты с таким ID не существует в базе данных
-        // Контроллер сначала получает карту для проверки прав доступа, поэтому исключение выбросится здесь
-        when(cardInfoService.getCardInfoById(999L))
-                .thenThrow(new CardInfoNotFoundException("Card with id 999 not found!"));
+        doThrow(new CardInfoNotFoundException("Card with id 999 not found!"))
+                .when(cardInfoService).deleteCardInfo(999L);
 
         // Внутри этого блока try — все вызовы SecurityUtils будут мокнутыми
         try (MockedStatic<SecurityUtils> mockedSecurityUtils = mockStatic(SecurityUtils.class)) {
@@ -467,5 +495,31 @@ class CardInfoControllerTest {
                     .andExpect(status().isNotFound()); // Проверка: что контроллер вернул 404 Not Found
         }
     }
-}
 
+    @Test
+    @DisplayName("POST /api/v1/cards/batch - найденные карты и missingIds")
+    void getCardInfosBatch_ShouldReturnCardsAndMissingIds() throws Exception {
+        // given
+        when(cardInfoService.getCardInfosBatch(of(1L, 2L)))
+                .thenReturn(new CardBatchResponse(of(cardInfoDto), of(2L)));
+
+        // when & then
+        mockMvc.perform(post("/api/v1/cards/batch")
+                        .principal(createMockAuthentication("user@example.com", "USER"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CardBatchRequest(of(1L, 2L)))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cards[0].id").value(1))
+                .andExpect(jsonPath("$.missingIds[0]").value(2));
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/cards/batch - пустой список id отклоняется (400)")
+    void getCardInfosBatch_ShouldReturnBadRequest_WhenIdsEmpty() throws Exception {
+        mockMvc.perform(post("/api/v1/cards/batch")
+                        .principal(createMockAuthentication("user@example.com", "USER"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,86 @@
+package com.innowise.demo.controller;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import com.innowise.demo.dto.PagedOutboxEventResponse;
+import com.innowise.demo.service.OutboxService;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Import(PageSizeGuard.class)
+@WebMvcTest(controllers = OutboxAdminController.class, excludeAutoConfiguration = {
+        org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration.class,
+        org.springframework.boot.autoconfigure.security.oauth2.resource.servlet.OAuth2ResourceServerAutoConfiguration.class
+})
+@AutoConfigureMockMvc(addFilters = false)
+class OutboxAdminControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private OutboxService outboxService;
+
+    private JwtAuthenticationToken createMockAuthentication(String email, String role) {
+        Jwt jwt = Jwt.withTokenValue("mock-token")
+                .header("alg", "HS256")
+                .claim("sub", email)
+                .claim("role", role)
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .build();
+
+        return new JwtAuthenticationToken(
+                jwt,
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role))
+        );
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/admin/outbox - страница событий для ADMIN")
+    void getEvents_ShouldReturnPage() throws Exception {
+        // given
+        when(outboxService.findEvents(isNull(), anyInt(), anyInt()))
+                .thenReturn(new PagedOutboxEventResponse(List.of(), 0, 20, 0, 0));
+
+        // when & then
+        mockMvc.perform(get("/api/v1/admin/outbox")
+                        .principal(createMockAuthentication("admin@example.com", "ADMIN")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(20));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/admin/outbox?size=-1 - некорректный размер страницы возвращает 400")
+    void getEvents_WithNegativePageSize_ShouldReturnBadRequest() throws Exception {
+        // when & then
+        mockMvc.perform(get("/api/v1/admin/outbox")
+                        .param("size", "-1")
+                        .principal(createMockAuthentication("admin@example.com", "ADMIN")))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("BAD_REQUEST"));
+
+        verify(outboxService, never()).findEvents(any(), anyInt(), anyInt());
+    }
+}
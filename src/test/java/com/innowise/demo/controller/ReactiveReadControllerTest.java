@@ -0,0 +1,189 @@
+package com.innowise.demo.controller;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innowise.demo.cache.CachedUserJson;
+import com.innowise.demo.cache.ReactiveCacheReader;
+import com.innowise.demo.cache.UserJsonCache;
+import com.innowise.demo.config.ReactiveReadConfig;
+import com.innowise.demo.dto.CardInfoDto;
+import com.innowise.demo.dto.UserDto;
+import com.innowise.demo.security.AuthenticatedUser;
+import com.innowise.demo.security.UserIdResolver;
+import com.innowise.demo.service.CardInfoService;
+import com.innowise.demo.service.UserService;
+
+import reactor.core.publisher.Mono;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Import(ReactiveReadConfig.class)
+@WebMvcTest(controllers = ReactiveReadController.class, excludeAutoConfiguration = {
+        org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration.class,
+        org.springframework.boot.autoconfigure.security.oauth2.resource.servlet.OAuth2ResourceServerAutoConfiguration.class
+})
+@AutoConfigureMockMvc(addFilters = false)
+class ReactiveReadControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private ReactiveCacheReader cacheReader;
+
+    @MockitoBean
+    private UserService userService;
+
+    @MockitoBean
+    private CardInfoService cardInfoService;
+
+    @MockitoBean
+    private UserJsonCache userJsonCache;
+
+    @MockitoBean
+    private UserIdResolver userIdResolver;
+
+    private UserDto userDto;
+
+    @BeforeEach
+    void setUp() {
+        userDto = new UserDto();
+        userDto.setId(1L);
+        userDto.setFirstName("Test");
+        userDto.setEmail("test@example.com");
+        userDto.setBirthDate(LocalDate.of(1990, 1, 1));
+        userDto.setVersion(3L);
+    }
+
+    private JwtAuthenticationToken createMockAuthentication(String email, String role) {
+        Jwt jwt = Jwt.withTokenValue("mock-token")
+                .header("alg", "HS256")
+                .claim("sub", email)
+                .claim("role", role)
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .build();
+
+        return new JwtAuthenticationToken(
+                jwt,
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role))
+        );
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/reactive/users/id - попадание в users_json отдается без обращения к сервису")
+    void getUserById_ShouldReturnCachedJson() throws Exception {
+        // given
+        CachedUserJson json = CachedUserJson.of("test@example.com", "\"u1-3\"", objectMapper.writeValueAsBytes(userDto));
+        when(cacheReader.getUserJson("id_1")).thenReturn(Mono.just(json));
+
+        // when
+        MvcResult result = mockMvc.perform(get("/api/v1/reactive/users/id")
+                        .param("id", "1")
+                        .principal(createMockAuthentication("test@example.com", "USER")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"u1-3\""))
+                .andExpect(jsonPath("$.id").value(1L))
+                .andExpect(jsonPath("$.email").value("test@example.com"));
+        verify(userService, never()).findUserById(anyLong());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/reactive/users/id - промах: пользователь читается сервисом в пуле для промахов")
+    void getUserById_OnMiss_ShouldFallBackToService() throws Exception {
+        // given
+        when(cacheReader.getUserJson("id_1")).thenReturn(Mono.empty());
+        when(userService.findUserById(1L)).thenReturn(userDto);
+        when(userJsonCache.put(any())).thenReturn(Optional.empty());
+
+        // when
+        MvcResult result = mockMvc.perform(get("/api/v1/reactive/users/id")
+                        .param("id", "1")
+                        .principal(createMockAuthentication("test@example.com", "USER")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.firstName").value("Test"));
+        verify(userJsonCache).put(userDto);
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/reactive/users/id - готовый JSON чужого пользователя: 403")
+    void getUserById_ShouldReturnForbidden_ForOtherUser() throws Exception {
+        // given
+        CachedUserJson json = CachedUserJson.of("other@example.com", null, "{\"id\":2}".getBytes());
+        when(cacheReader.getUserJson("id_2")).thenReturn(Mono.just(json));
+
+        // when
+        MvcResult result = mockMvc.perform(get("/api/v1/reactive/users/id")
+                        .param("id", "2")
+                        .principal(createMockAuthentication("test@example.com", "USER")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/reactive/cards/5 - чужая карта из кэша для USER: 404, как несуществующая")
+    void getCardInfoById_ShouldReturnNotFound_ForOtherUsersCard() throws Exception {
+        // given
+        CardInfoDto card = new CardInfoDto();
+        card.setId(5L);
+        card.setUserId(2L);
+        when(cacheReader.get("cardCache", 5L, CardInfoDto.class)).thenReturn(Mono.just(card));
+        when(userIdResolver.resolveCached(any(AuthenticatedUser.class))).thenReturn(1L);
+
+        // when
+        MvcResult result = mockMvc.perform(get("/api/v1/reactive/cards/5")
+                        .principal(createMockAuthentication("test@example.com", "USER")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound());
+        verify(cardInfoService, never()).getCardInfoById(anyLong());
+    }
+}
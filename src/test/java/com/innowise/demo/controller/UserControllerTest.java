@@ -2,18 +2,26 @@ package com.innowise.demo.controller;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innowise.demo.cache.CachedUserJson;
+import com.innowise.demo.cache.UserJsonCache;
+import com.innowise.demo.dto.CardInfoDto;
 import com.innowise.demo.dto.CreateUserFromTokenRequest;
 import com.innowise.demo.dto.PagedUserResponse;
 import com.innowise.demo.dto.UpdateUserDto;
@@ -22,15 +30,28 @@ import com.innowise.demo.exception.UserAlreadyExistsException;
 import com.innowise.demo.exception.UserNotFoundException;
 import com.innowise.demo.service.UserService;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -43,6 +64,7 @@ import java.util.Collections;
 
 import static org.mockito.Mockito.mockStatic;
 
+@Import(PageSizeGuard.class)
 @WebMvcTest(controllers = UserController.class)
 @AutoConfigureMockMvc(addFilters = false)
 class UserControllerTest {
@@ -59,6 +81,9 @@ class UserControllerTest {
     @MockitoBean
     private JwtDecoder jwtDecoder;
 
+    @MockitoBean
+    private UserJsonCache userJsonCache;
+
     private UserDto userDto;
 
     @BeforeEach
@@ -268,6 +293,44 @@ class UserControllerTest {
         }
     }
 
+    @Test
+    @DisplayName("GET /api/v1/users/id?id=1 - готовый JSON из кэша отдается без обращения к сервису")
+    void getUserById_ShouldReturnCachedJson_WhenPresent() throws Exception {
+        // given
+        userDto.setVersion(3L);
+        CachedUserJson cached = CachedUserJson.of("test@example.com", "\"u1-3\"",
+                objectMapper.writeValueAsBytes(userDto));
+        when(userJsonCache.findById(1L)).thenReturn(Optional.of(cached));
+        JwtAuthenticationToken authentication = createMockAuthentication("test@example.com", "USER");
+
+        // when & then
+        mockMvc.perform(get("/api/v1/users/id")
+                        .param("id", "1")
+                        .principal(authentication))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"u1-3\""))
+                .andExpect(jsonPath("$.id").value(1L))
+                .andExpect(jsonPath("$.email").value("test@example.com"));
+
+        verify(userService, never()).findUserById(anyLong());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/users/id?id=2 - готовый JSON чужого пользователя: доступ запрещен")
+    void getUserById_ShouldReturnForbidden_WhenCachedJsonOfOtherUser() throws Exception {
+        // given
+        CachedUserJson cached = CachedUserJson.of("other@example.com", null, "{\"id\":2}".getBytes());
+        when(userJsonCache.findById(2L)).thenReturn(Optional.of(cached));
+        JwtAuthenticationToken authentication = createMockAuthentication("test@example.com", "USER");
+
+        // when & then
+        mockMvc.perform(get("/api/v1/users/id")
+                        .param("id", "2")
+                        .principal(authentication))
+                .andExpect(status().isForbidden());
+    }
+
     @Test
     @DisplayName("GET /api/v1/users - успешное получение списка пользователей с пагинацией")
     void getUsers_ShouldReturnPagedResponse() throws Exception {
@@ -300,6 +363,80 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.totalPages").value(1)); // Проверка: что всего страниц 1
     }
 
+    @Test
+    @DisplayName("GET /api/v1/users?fields=id,firstName - страница без карт, только выбранные поля")
+    void getUsers_WithFields_ShouldReturnSelectedFieldsWithoutCards() throws Exception {
+        // given
+        // Страница без карт строится проекцией (findAllUserSummaries), полная страница не запрашивается
+        PagedUserResponse summaries = new PagedUserResponse(List.of(userDto), 0, 5, 1L, 1);
+        when(userService.findAllUserSummaries(0, 5)).thenReturn(summaries);
+
+        // when & then
+        mockMvc.perform(get("/api/v1/users")
+                        .param("fields", "id,firstName"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(1L))
+                .andExpect(jsonPath("$.content[0].firstName").value("Test"))
+                .andExpect(jsonPath("$.content[0].email").doesNotExist())
+                .andExpect(jsonPath("$.content[0].cards").doesNotExist())
+                .andExpect(jsonPath("$.totalElements").value(1));
+
+        verify(userService, never()).findAllUsers(anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/users?fields=unknown - неизвестное поле возвращает 400")
+    void getUsers_WithUnknownField_ShouldReturnBadRequest() throws Exception {
+        // when & then
+        mockMvc.perform(get("/api/v1/users")
+                        .param("fields", "id,password"))
+                .andExpect(status().isBadRequest());
+
+        verify(userService, never()).findAllUserSummaries(anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/users?size=1000 - размер страницы больше лимита возвращает 400")
+    void getUsers_WithTooLargePageSize_ShouldReturnBadRequest() throws Exception {
+        // when & then
+        mockMvc.perform(get("/api/v1/users")
+                        .param("size", "1000"))
+                .andExpect(status().isBadRequest());
+
+        verify(userService, never()).findAllUserSummaries(anyInt(), anyInt());
+        verify(userService, never()).findAllUsers(anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/users/stream - пользователи пишутся в NDJSON по одному на строку")
+    void streamUsers_ShouldWriteNdjson() throws Exception {
+        // given
+        UserDto second = new UserDto();
+        second.setId(2L);
+        doAnswer(invocation -> {
+            Consumer<UserDto> sink = invocation.getArgument(0);
+            sink.accept(userDto);
+            sink.accept(second);
+            return null;
+        }).when(userService).streamAllUsers(any());
+
+        // when
+        MvcResult result = mockMvc.perform(get("/api/v1/users/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(body.endsWith("\n"));
+        assertEquals(1L, objectMapper.readValue(lines[0], UserDto.class).getId());
+        assertEquals(2L, objectMapper.readValue(lines[1], UserDto.class).getId());
+    }
+
     @Test
     @DisplayName("GET /api/v1/users - дефолтные параметры пагинации")
     void getUsers_ShouldUseDefaultPagination() throws Exception {
@@ -357,6 +494,44 @@ class UserControllerTest {
         }
     }
 
+    @Test
+    @DisplayName("GET /api/v1/users/self - совпадающий If-None-Match возвращает 304 без тела")
+    void getSelfUser_ShouldReturnNotModified_WhenETagMatches() throws Exception {
+        // given
+        String email = "test@example.com";
+        CardInfoDto card = new CardInfoDto();
+        card.setId(10L);
+        card.setVersion(2L);
+        userDto.setVersion(3L);
+        userDto.setCards(List.of(card));
+        when(userService.getUserByEmail(email)).thenReturn(userDto);
+        JwtAuthenticationToken authentication = createMockAuthentication(email, "USER");
+
+        // when
+        String etag = mockMvc.perform(get("/api/v1/users/self")
+                        .principal(authentication))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // then
+        // Повторный запрос с тем же ETag - 304 без тела
+        assertNotNull(etag);
+        mockMvc.perform(get("/api/v1/users/self")
+                        .principal(authentication)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // Изменение карты меняет ETag пользователя: старый ETag больше не совпадает
+        card.setVersion(3L);
+        mockMvc.perform(get("/api/v1/users/self")
+                        .principal(authentication)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(3L));
+    }
+
     @Test
     @DisplayName("GET /api/v1/users/self - пользователь не найден")
     void getSelfUser_ShouldReturnNotFound_WhenUserNotFound() throws Exception {
@@ -802,12 +977,8 @@ class UserControllerTest {
     @Test
     @DisplayName("DELETE /api/v1/users/1 - успешное удаление пользователя ADMIN")
     void deleteUser_ShouldReturnNoContent_WhenAdmin() throws Exception {
-        // given
-        // Когда кто-то вызовет userService.findUserById(1L), верни userDto
-        // (это нужно для проверки прав доступа — контроллер сначала получает пользователя)
-        when(userService.findUserById(1L)).thenReturn(userDto);
-
-        //when
+        // given & when
+        // Контроллер не загружает пользователя заранее: загрузка и удаление выполняются в сервисе
         // Внутри этого блока try — все вызовы SecurityUtils будут мокнутыми
         try (MockedStatic<SecurityUtils> mockedSecurityUtils = mockStatic(SecurityUtils.class)) {
             // Создаём мок аутентификации — как будто администратор уже залогинен
@@ -823,6 +994,9 @@ class UserControllerTest {
                     .andExpect(status().isNoContent()); // Проверка: что контроллер вернул 204 No Content
             // (стандартный HTTP статус для успешного удаления без тела ответа)
         }
+        // Проверка: пользователь не загружался в контроллере перед удалением
+        verify(userService, never()).findUserById(any());
+        verify(userService).deleteUser(1L);
     }
 
     @Test
@@ -855,11 +1029,10 @@ class UserControllerTest {
     @DisplayName("DELETE /api/v1/users/999 - пользователь не найден для удаления")
     void deleteUser_ShouldReturnNotFound_WhenUserNotFound() throws Exception {
         // given & when
-        // Когда кто-то вызовет userService.findUserById(999L), выбрось исключение
+        // Когда кто-то вызовет userService.deleteUser(999L), выбрось исключение
         // Это имитирует ситуацию, когда пользователя с таким ID не существует в базе данных
-        // Контроллер сначала получает пользователя для проверки прав доступа, поэтому исключение выбросится здесь
-        when(userService.findUserById(999L))
-                .thenThrow(new UserNotFoundException("User with id 999 not found!"));
+        doThrow(new UserNotFoundException("User with id 999 not found!"))
+                .when(userService).deleteUser(999L);
 
         // Внутри этого блока try — все вызовы SecurityUtils будут мокнутыми
         try (MockedStatic<SecurityUtils> mockedSecurityUtils = mockStatic(SecurityUtils.class)) {
@@ -0,0 +1,84 @@
+package com.innowise.demo.filter;
+
+import java.time.Duration;
+
+import jakarta.servlet.FilterChain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class AdmissionControlFilterTest {
+
+    private final AimdConcurrencyLimiter limiter =
+            new AimdConcurrencyLimiter(2, 2, 10, Duration.ofMillis(500), 0.9);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AdmissionControlFilter filter =
+            new AdmissionControlFilter(limiter, Duration.ofSeconds(3), meterRegistry);
+
+    @Test
+    @DisplayName("Допущенный запрос проходит дальше и освобождает место")
+    void admittedRequestReleasesSlot() throws Exception {
+        // given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/users/self");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // when
+        filter.doFilter(request, response, chain);
+
+        // then
+        assertThat(chain.getRequest()).isSameAs(request);
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("При исчерпании доли лимита запрос получает 503 с Retry-After")
+    void rejectedRequestGets503WithRetryAfter() throws Exception {
+        // given - единственное место LOW-запросов занято
+        limiter.tryAcquire(RequestPriority.LOW.share());
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/users");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = mock(FilterChain.class);
+
+        // when
+        filter.doFilter(request, response, chain);
+
+        // then
+        verify(chain, never()).doFilter(any(), any());
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("3");
+        assertThat(response.getContentAsString()).contains("SERVICE_UNAVAILABLE");
+        assertThat(meterRegistry.counter("admission.rejected", "priority", "LOW").count()).isEqualTo(1);
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Запросы к actuator не ограничиваются")
+    void actuatorIsNotLimited() throws Exception {
+        // given
+        limiter.tryAcquire(1.0);
+        limiter.tryAcquire(1.0);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/actuator/health");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // when
+        filter.doFilter(request, response, chain);
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(chain.getRequest()).isSameAs(request);
+    }
+}
@@ -0,0 +1,96 @@
+package com.innowise.demo.filter;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AimdConcurrencyLimiterTest {
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofSeconds(2).toNanos();
+
+    private final AimdConcurrencyLimiter limiter =
+            new AimdConcurrencyLimiter(10, 2, 20, Duration.ofMillis(500), 0.5);
+
+    @Test
+    @DisplayName("Медленные запросы уменьшают лимит, но не ниже min-limit")
+    void slowRequestsDecreaseLimit() {
+        // when
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire(1.0)).isTrue();
+            limiter.release(SLOW, true);
+        }
+
+        // then
+        assertThat(limiter.getLimit()).isEqualTo(2);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("Быстрые запросы под нагрузкой увеличивают лимит, без нагрузки - нет")
+    void fastRequestsIncreaseLimitOnlyUnderLoad() {
+        // given
+        for (int i = 0; i < 6; i++) {
+            limiter.tryAcquire(1.0);
+        }
+
+        // when
+        limiter.release(FAST, true);
+        limiter.release(FAST, false);
+
+        // then
+        assertThat(limiter.getLimit()).isEqualTo(11);
+
+        // when - занято меньше половины лимита
+        limiter.release(FAST, true);
+        limiter.release(FAST, true);
+        limiter.release(FAST, true);
+
+        // then
+        assertThat(limiter.getLimit()).isEqualTo(11);
+    }
+
+    @Test
+    @DisplayName("Запрос с низким приоритетом отклоняется раньше запроса с высоким")
+    void lowPriorityIsRejectedFirst() {
+        // given
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire(RequestPriority.LOW.share())).isTrue();
+        }
+
+        // when / then
+        assertThat(limiter.tryAcquire(RequestPriority.LOW.share())).isFalse();
+        assertThat(limiter.tryAcquire(RequestPriority.HIGH.share())).isTrue();
+        assertThat(limiter.getInFlight()).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("Одновременные завершения запросов не теряют изменений лимита")
+    void concurrentReleasesDoNotLoseUpdates() throws Exception {
+        // given
+        AimdConcurrencyLimiter wide = new AimdConcurrencyLimiter(1000, 1, 1000, Duration.ofMillis(500), 0.99);
+        for (int i = 0; i < 100; i++) {
+            assertThat(wide.tryAcquire(1.0)).isTrue();
+        }
+        double expected = 1000;
+        for (int i = 0; i < 100; i++) {
+            expected *= 0.99;
+        }
+
+        // when - 100 медленных завершений из разных потоков
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 100; i++) {
+                executor.execute(() -> wide.release(SLOW, true));
+            }
+        }
+
+        // then - каждое завершение уменьшило лимит ровно один раз
+        assertThat(wide.getInFlight()).isZero();
+        assertThat(wide.getLimit()).isEqualTo((int) expected);
+    }
+}
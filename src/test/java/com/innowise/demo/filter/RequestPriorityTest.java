@@ -0,0 +1,34 @@
+package com.innowise.demo.filter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestPriorityTest {
+
+    private static RequestPriority of(String method, String path) {
+        return RequestPriority.of(new MockHttpServletRequest(method, path));
+    }
+
+    @Test
+    @DisplayName("Списки пользователей и карт отклоняются первыми, карта по id и /self - последними")
+    void listingsAreLowAndPointReadsAreHigh() {
+        // then
+        assertThat(of("GET", "/api/v1/cards")).isEqualTo(RequestPriority.LOW);
+        assertThat(of("GET", "/api/v1/users")).isEqualTo(RequestPriority.LOW);
+        assertThat(of("GET", "/api/v1/cards/1")).isEqualTo(RequestPriority.HIGH);
+        assertThat(of("GET", "/api/v1/users/self")).isEqualTo(RequestPriority.HIGH);
+    }
+
+    @Test
+    @DisplayName("Выгрузки и пакетные запросы - LOW, изменения - NORMAL")
+    void bulkRequestsAreLowAndWritesAreNormal() {
+        // then
+        assertThat(of("GET", "/api/v1/cards/stream")).isEqualTo(RequestPriority.LOW);
+        assertThat(of("POST", "/api/v1/cards/batch")).isEqualTo(RequestPriority.LOW);
+        assertThat(of("POST", "/api/v1/cards")).isEqualTo(RequestPriority.NORMAL);
+        assertThat(of("PUT", "/api/v1/cards/1")).isEqualTo(RequestPriority.NORMAL);
+    }
+}
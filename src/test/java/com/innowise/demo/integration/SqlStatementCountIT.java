@@ -0,0 +1,190 @@
+package com.innowise.demo.integration;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.UUID;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innowise.demo.dto.CardInfoDto;
+import com.innowise.demo.model.CardInfo;
+import com.innowise.demo.model.User;
+import com.innowise.demo.repository.CardInfoRepository;
+import com.innowise.demo.repository.UserRepository;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Интеграционные тесты на количество SQL запросов для эндпоинтов.
+ * Запросы проходят через полную цепочку (JWT фильтр, контроллер, сервис, репозиторий),
+ * количество подготовленных statement'ов считается через статистику Hibernate.
+ * Тесты фиксируют верхнюю границу, чтобы повторные загрузки одной и той же сущности
+ * (контроллер, затем сервис) не вернулись незаметно.
+ */
+@AutoConfigureMockMvc
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class SqlStatementCountIT extends BaseIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardInfoRepository cardInfoRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${jwt.secret}")
+    private String jwtSecret;
+
+    private Statistics statistics;
+    private User owner;
+    private CardInfo card;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        cardInfoRepository.deleteAll();
+        userRepository.deleteAll();
+
+        // Уникальный email в каждом тесте: соответствие email -> id кэшируется локально (UserIdResolver)
+        owner = new User();
+        owner.setFirstName("Sql");
+        owner.setLastName("Count");
+        owner.setEmail("owner-" + UUID.randomUUID() + "@example.com");
+        owner.setBirthDate(LocalDate.of(1990, 1, 1));
+        owner = userRepository.save(owner);
+
+        card = new CardInfo();
+        card.setNumber("1111222233334444");
+        card.setHolder("Sql Count");
+        card.setExpirationDate(LocalDate.of(2030, 1, 1));
+        card.setUser(owner);
+        card = cardInfoRepository.save(card);
+    }
+
+    /**
+     * Создает JWT, подписанный тем же секретом, что проверяет SecurityConfig.
+     */
+    private String bearer(String email, String role) throws Exception {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject(email)
+                .claim("role", role)
+                .issueTime(new Date())
+                .expirationTime(Date.from(Instant.now().plusSeconds(600)))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims);
+        jwt.sign(new MACSigner(jwtSecret.getBytes(StandardCharsets.UTF_8)));
+        return "Bearer " + jwt.serialize();
+    }
+
+    /**
+     * Выполняет запрос и проверяет, что он выполнил не больше maxStatements SQL запросов.
+     */
+    private void assertStatements(MockHttpServletRequestBuilder request, ResultMatcher expectedStatus,
+                                  long maxStatements) throws Exception {
+        statistics.clear();
+
+        mockMvc.perform(request).andExpect(expectedStatus);
+
+        long executed = statistics.getPrepareStatementCount();
+        assertTrue(executed <= maxStatements,
+                "Expected at most " + maxStatements + " SQL statements, but was " + executed);
+    }
+
+    @Test
+    @DisplayName("DELETE /api/v1/users/{id} - пользователь загружается один раз")
+    void deleteUser_ShouldLoadUserOnce() throws Exception {
+        // select user, select cards (каскадное удаление), delete card, delete user, insert outbox event
+        assertStatements(delete("/api/v1/users/" + owner.getId())
+                        .header(HttpHeaders.AUTHORIZATION, bearer("admin@example.com", "ADMIN")),
+                status().isNoContent(), 5);
+    }
+
+    @Test
+    @DisplayName("DELETE /api/v1/cards/{id} - карта загружается один раз")
+    void deleteCard_ShouldLoadCardOnce() throws Exception {
+        // select card, delete card
+        assertStatements(delete("/api/v1/cards/" + card.getId())
+                        .header(HttpHeaders.AUTHORIZATION, bearer("admin@example.com", "ADMIN")),
+                status().isNoContent(), 2);
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/cards - владелец не загружается, только его id")
+    void addCard_ShouldNotLoadOwner() throws Exception {
+        CardInfoDto dto = new CardInfoDto();
+        dto.setNumber("5555666677778888");
+        dto.setHolder("Sql Count");
+        dto.setExpirationDate(LocalDate.of(2031, 1, 1));
+        dto.setUserId(owner.getId());
+
+        // select id пользователя по email, insert card
+        assertStatements(post("/api/v1/cards")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(owner.getEmail(), "USER"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)),
+                status().isCreated(), 2);
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/cards/{id} - доступ проверяется тем же запросом, что загружает карту")
+    void getCard_ShouldUseOwnerScopedQuery() throws Exception {
+        // select id пользователя по email, select card по id и id владельца
+        assertStatements(get("/api/v1/cards/" + card.getId())
+                        .header(HttpHeaders.AUTHORIZATION, bearer(owner.getEmail(), "USER")),
+                status().isOk(), 2);
+    }
+
+    @Test
+    @DisplayName("PUT /api/v1/cards/{id} - карта загружается один раз")
+    void updateCard_ShouldLoadCardOnce() throws Exception {
+        CardInfoDto dto = new CardInfoDto();
+        dto.setNumber("1111222233334444");
+        dto.setHolder("Updated Holder");
+        dto.setExpirationDate(LocalDate.of(2032, 1, 1));
+        dto.setUserId(owner.getId());
+
+        // select id пользователя по email, select card по id и id владельца, update card
+        assertStatements(put("/api/v1/cards/" + card.getId())
+                        .header(HttpHeaders.AUTHORIZATION, bearer(owner.getEmail(), "USER"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)),
+                status().isOk(), 3);
+    }
+}
@@ -0,0 +1,239 @@
+package com.innowise.demo.integration;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.ManagementWebSecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.servlet.OAuth2ResourceServerAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.innowise.demo.client.AuthServiceClient;
+import com.innowise.demo.config.AuthServiceResilienceConfig;
+import com.innowise.demo.config.RestTemplateConfig;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Нагрузочное сравнение обработки запросов на платформенных и виртуальных потоках.
+ *
+ * Tomcat с реальным AuthServiceClient (пул HttpClient, circuit breaker, bulkhead) обрабатывает запросы,
+ * каждый из которых блокируется на вызове заглушки authentication-service с задержкой LATENCY_MS.
+ * Пул Tomcat ограничен TOMCAT_THREADS потоками, клиентов CONCURRENCY: на платформенных потоках
+ * пропускная способность упирается в размер пула, на виртуальных - в лимиты пулов ресурсов.
+ * Лимиты HTTP пула, bulkhead и порог медленных вызовов подняты, чтобы измерялась модель потоков, а не они.
+ * Docker не нужен: БД, Redis и Security в этом контексте не поднимаются.
+ */
+class VirtualThreadsLoadIT {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadsLoadIT.class);
+
+    private static final int LATENCY_MS = 50;
+    private static final int TOMCAT_THREADS = 20;
+    private static final int CONCURRENCY = 200;
+    private static final int REQUESTS = 2000;
+    private static final int MIN_CPUS_FOR_COMPARISON = 4;
+
+    private static final Map<String, Double> THROUGHPUT = new ConcurrentHashMap<>();
+    private static final AtomicInteger TOKEN_SEQUENCE = new AtomicInteger();
+    private static final HttpServer AUTH_STUB = startAuthStub();
+
+    private static HttpServer startAuthStub() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 1000);
+            // Заглушка и нагрузка на платформенных потоках: не делят носители с проверяемым сервисом
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.createContext("/auth/validate", exchange -> {
+                // Тело запроса дочитывается, иначе соединение не переиспользуется из пула
+                exchange.getRequestBody().readAllBytes();
+                try {
+                    Thread.sleep(LATENCY_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                byte[] body = "{\"valid\":true,\"username\":\"load@example.com\",\"role\":\"USER\"}"
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+                exchange.close();
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void loadTestProperties(DynamicPropertyRegistry registry) {
+        registry.add("authentication.service.base-url",
+                () -> "http://localhost:" + AUTH_STUB.getAddress().getPort());
+        registry.add("server.tomcat.threads.max", () -> TOMCAT_THREADS);
+        registry.add("management.server.port", () -> -1);
+        registry.add("authentication.service.http.max-total", () -> 1000);
+        registry.add("authentication.service.http.max-per-route", () -> 1000);
+        registry.add("authentication.service.bulkhead.max-concurrent-calls", () -> 1000);
+        // Очередь к пулу Tomcat не должна считаться медленными вызовами и открывать circuit breaker
+        registry.add("authentication.service.circuit-breaker.slow-call-duration", () -> "1m");
+    }
+
+    @AfterAll
+    static void compare() {
+        AUTH_STUB.stop(0);
+        Double platform = THROUGHPUT.get("platform");
+        Double virtual = THROUGHPUT.get("virtual");
+        if (platform == null || virtual == null) {
+            return;
+        }
+        log.info("Throughput at {} concurrent clients: platform threads {} req/s, virtual threads {} req/s",
+                CONCURRENCY, Math.round(platform), Math.round(virtual));
+        // Платформенный режим ограничен TOMCAT_THREADS / LATENCY, виртуальный - CONCURRENCY / LATENCY.
+        // На 1-2 ядрах обработка упирается в CPU раньше, чем в пул Tomcat, и сравнение не показательно
+        assumeTrue(Runtime.getRuntime().availableProcessors() >= MIN_CPUS_FOR_COMPARISON,
+                "Not enough CPUs for a meaningful throughput comparison");
+        assertTrue(virtual > platform * 2,
+                "Virtual threads should sustain much higher throughput for I/O-bound requests");
+    }
+
+    /**
+     * Отправляет REQUESTS запросов с CONCURRENCY одновременными клиентами и возвращает запросов в секунду.
+     */
+    private static double runLoad(int port) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        AtomicInteger ok = new AtomicInteger();
+
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY)) {
+            List<Future<?>> futures = new ArrayList<>(REQUESTS);
+            for (int i = 0; i < REQUESTS; i++) {
+                // Уникальный токен: кэш проверки токенов не должен скрывать вызов authentication-service
+                URI uri = URI.create("http://localhost:" + port + "/load/validate?token=load-"
+                        + TOKEN_SEQUENCE.incrementAndGet());
+                futures.add(clients.submit(() -> {
+                    HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).build(),
+                            HttpResponse.BodyHandlers.ofString());
+                    if (response.statusCode() == 200 && "true".equals(response.body())) {
+                        ok.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        assertEquals(REQUESTS, ok.get(), "All requests must be validated by the stub");
+        return REQUESTS / seconds;
+    }
+
+    // Контекст закрывается после замера: соединения его пула не остаются открытыми на заглушке
+    @Nested
+    @DirtiesContext
+    @DisplayName("Платформенные потоки (пул Tomcat)")
+    @SpringBootTest(classes = LoadTestApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+            properties = {"spring.threads.virtual.enabled=false", "logging.level.org.springframework.web=INFO"})
+    class PlatformThreads {
+
+        @LocalServerPort
+        private int port;
+
+        @Test
+        void measureThroughput() throws Exception {
+            runLoad(port); // прогрев
+            THROUGHPUT.put("platform", runLoad(port));
+        }
+    }
+
+    @Nested
+    @DirtiesContext
+    @DisplayName("Виртуальные потоки")
+    @SpringBootTest(classes = LoadTestApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+            properties = {"spring.threads.virtual.enabled=true", "logging.level.org.springframework.web=INFO"})
+    class VirtualThreads {
+
+        @LocalServerPort
+        private int port;
+
+        @Test
+        void measureThroughput() throws Exception {
+            runLoad(port); // прогрев
+            THROUGHPUT.put("virtual", runLoad(port));
+        }
+    }
+
+    /**
+     * Минимальный контекст: Tomcat и клиент authentication-service с его конфигурацией.
+     */
+    @SpringBootConfiguration
+    @EnableAutoConfiguration(exclude = {
+            DataSourceAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class,
+            LiquibaseAutoConfiguration.class,
+            RedisAutoConfiguration.class,
+            RedisRepositoriesAutoConfiguration.class,
+            SecurityAutoConfiguration.class,
+            UserDetailsServiceAutoConfiguration.class,
+            OAuth2ResourceServerAutoConfiguration.class,
+            ManagementWebSecurityAutoConfiguration.class
+    })
+    @Import({RestTemplateConfig.class, AuthServiceResilienceConfig.class, AuthServiceClient.class,
+            LoadTestApplication.ValidateController.class})
+    static class LoadTestApplication {
+
+        @RestController
+        static class ValidateController {
+
+            private final AuthServiceClient authServiceClient;
+
+            ValidateController(AuthServiceClient authServiceClient) {
+                this.authServiceClient = authServiceClient;
+            }
+
+            @GetMapping("/load/validate")
+            boolean validate(@RequestParam String token) {
+                return authServiceClient.validateToken(token).isPresent();
+            }
+        }
+    }
+}
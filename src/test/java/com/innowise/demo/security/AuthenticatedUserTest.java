@@ -0,0 +1,84 @@
+package com.innowise.demo.security;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthenticatedUserTest {
+
+    private static Jwt jwt(String subject, String role) {
+        Jwt.Builder builder = Jwt.withTokenValue("mock-token")
+                .header("alg", "HS256")
+                .claim("role", role)
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600));
+        if (subject != null) {
+            builder.subject(subject);
+        } else {
+            builder.claim("preferred_username", "kc-user");
+        }
+        return builder.build();
+    }
+
+    @Test
+    @DisplayName("Конвертер вычисляет контекст пользователя один раз и сохраняет его в токене")
+    void converter_ShouldAttachPrecomputedUser() {
+        // given
+        AuthenticatedUserConverter converter = new AuthenticatedUserConverter(
+                jwt -> List.<GrantedAuthority>of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+
+        // when
+        AbstractAuthenticationToken token = converter.convert(jwt("admin@example.com", "ADMIN"));
+
+        // then
+        AuthenticatedUserToken userToken = assertInstanceOf(AuthenticatedUserToken.class, token);
+        AuthenticatedUser user = userToken.getAuthenticatedUser();
+        assertSame(user, AuthenticatedUser.from(userToken));
+        assertEquals("admin@example.com", user.getEmail());
+        assertTrue(user.isAdmin());
+        assertFalse(user.hasRole(AuthenticatedUser.ROLE_USER));
+        assertTrue(user.canAccess("other@example.com"));
+    }
+
+    @Test
+    @DisplayName("USER имеет доступ только к своим ресурсам, email сравнивается с sub точно")
+    void canAccess_User_ShouldMatchOwnEmailOnly() {
+        // given
+        AuthenticatedUser user = AuthenticatedUser.from(new JwtAuthenticationToken(
+                jwt("test@example.com", "USER"), List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+
+        // then
+        assertTrue(user.hasRole(AuthenticatedUser.ROLE_USER));
+        assertFalse(user.isAdmin());
+        assertTrue(user.canAccess("test@example.com"));
+        assertFalse(user.canAccess("Test@Example.com"));
+        assertFalse(user.canAccess("other@example.com"));
+    }
+
+    @Test
+    @DisplayName("Без sub используется preferred_username, но getEmail и canAccess его не принимают")
+    void of_WithoutSubject_ShouldFallbackToPreferredUsername() {
+        // when
+        AuthenticatedUser user = AuthenticatedUser.of(jwt(null, "USER"),
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+        // then
+        assertEquals("kc-user", user.getIdentifier());
+        assertThrows(IllegalStateException.class, user::getEmail);
+        assertFalse(user.canAccess("kc-user"));
+    }
+}
@@ -0,0 +1,105 @@
+package com.innowise.demo.security;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingJwtDecoderTest {
+
+    private JwtDecoder delegate;
+    private CachingJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(JwtDecoder.class);
+        decoder = new CachingJwtDecoder(delegate, 100, Duration.ofMinutes(5));
+    }
+
+    private Jwt jwt(String tokenValue, Instant expiresAt) {
+        return Jwt.withTokenValue(tokenValue)
+                .header("alg", "HS256")
+                .claim("sub", "test@example.com")
+                .issuedAt(Instant.now().minusSeconds(10))
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Повторный токен берется из кэша без повторной проверки")
+    void decode_SameToken_ShouldVerifyOnlyOnce() {
+        // given
+        Jwt jwt = jwt("token-1", Instant.now().plusSeconds(3600));
+        when(delegate.decode("token-1")).thenReturn(jwt);
+
+        // when
+        Jwt first = decoder.decode("token-1");
+        Jwt second = decoder.decode("token-1");
+
+        // then
+        assertSame(first, second); // Проверка: что возвращается тот же объект из кэша
+        verify(delegate, times(1)).decode("token-1"); // Проверка: что подпись проверялась один раз
+    }
+
+    @Test
+    @DisplayName("Ошибки проверки не кэшируются")
+    void decode_InvalidToken_ShouldNotBeCached() {
+        // given
+        when(delegate.decode("bad")).thenThrow(new BadJwtException("invalid signature"));
+
+        // when & then
+        assertThrows(BadJwtException.class, () -> decoder.decode("bad"));
+        assertThrows(BadJwtException.class, () -> decoder.decode("bad"));
+        verify(delegate, times(2)).decode("bad"); // Проверка: каждый раз выполнялась проверка
+    }
+
+    @Test
+    @DisplayName("Истекший токен не остается в кэше")
+    void decode_ExpiredToken_ShouldNotBeServedFromCache() {
+        // given
+        Jwt expired = jwt("token-expired", Instant.now().minusSeconds(1));
+        when(delegate.decode("token-expired")).thenReturn(expired);
+
+        // when
+        decoder.decode("token-expired");
+        decoder.decode("token-expired");
+
+        // then
+        verify(delegate, times(2)).decode("token-expired");
+    }
+
+    @Test
+    @DisplayName("Метрики кэша отражают попадания и промахи")
+    void bindTo_ShouldExposeHitAndMissCounters() {
+        // given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        decoder.bindTo(registry);
+        when(delegate.decode("token-2")).thenReturn(jwt("token-2", Instant.now().plusSeconds(3600)));
+
+        // when
+        decoder.decode("token-2");
+        decoder.decode("token-2");
+        decoder.decode("token-2");
+
+        // then
+        assertEquals(2.0, registry.get("cache.gets").tag("cache", CachingJwtDecoder.CACHE_NAME)
+                .tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", CachingJwtDecoder.CACHE_NAME)
+                .tag("result", "miss").functionCounter().count());
+    }
+}
@@ -0,0 +1,102 @@
+package com.innowise.demo.security;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestOperations;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JwkSetManagerTest {
+
+    private static final String JWKS_URI = "http://keycloak/certs";
+
+    private RestOperations restOperations;
+    private JwkSetManager manager;
+
+    @BeforeEach
+    void setUp() {
+        restOperations = mock(RestOperations.class);
+        manager = new JwkSetManager(JWKS_URI, restOperations, Duration.ofMinutes(5),
+                Duration.ofMinutes(1), Duration.ofSeconds(2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.stop();
+    }
+
+    private static JWKSelector selectorFor(String kid) {
+        return new JWKSelector(new JWKMatcher.Builder().keyID(kid).build());
+    }
+
+    private static String jwkSetJson(RSAKey... keys) {
+        return new JWKSet(List.of((JWK[]) keys)).toString(true);
+    }
+
+    @Test
+    @DisplayName("Неизвестный kid запускает обновление ключей")
+    void jwkSource_UnknownKid_ShouldRefreshSnapshot() throws Exception {
+        // given
+        RSAKey key = new RSAKeyGenerator(2048).keyID("k1").generate();
+        when(restOperations.getForObject(JWKS_URI, String.class)).thenReturn(jwkSetJson(key));
+
+        // when
+        List<JWK> selected = manager.jwkSource().get(selectorFor("k1"), null);
+
+        // then
+        assertEquals(1, selected.size()); // Проверка: ключ найден после обновления
+        assertEquals("k1", selected.get(0).getKeyID());
+        verify(restOperations, times(1)).getForObject(JWKS_URI, String.class);
+    }
+
+    @Test
+    @DisplayName("Ошибка загрузки не теряет предыдущие ключи и не отключает RSA навсегда")
+    void refresh_Failure_ShouldKeepPreviousSnapshot() throws Exception {
+        // given
+        RSAKey key = new RSAKeyGenerator(2048).keyID("k1").generate();
+        when(restOperations.getForObject(JWKS_URI, String.class))
+                .thenReturn(jwkSetJson(key))
+                .thenThrow(new ResourceAccessException("Keycloak is down"));
+        manager.refreshAsync().get();
+
+        // when
+        boolean failed = manager.refreshAsync().handle((set, ex) -> ex != null).get();
+
+        // then
+        assertTrue(failed); // Проверка: вторая загрузка завершилась ошибкой
+        assertEquals(1, manager.getSnapshot().getKeys().size()); // Проверка: старые ключи остались
+        assertEquals(1, manager.jwkSource().get(selectorFor("k1"), null).size());
+    }
+
+    @Test
+    @DisplayName("Повторное обновление по неизвестному kid ограничено по частоте")
+    void jwkSource_UnknownKidTwice_ShouldBeRateLimited() throws Exception {
+        // given
+        when(restOperations.getForObject(JWKS_URI, String.class)).thenReturn(jwkSetJson());
+
+        // when
+        manager.jwkSource().get(selectorFor("missing"), null);
+        manager.jwkSource().get(selectorFor("missing"), null);
+
+        // then
+        verify(restOperations, times(1)).getForObject(JWKS_URI, String.class);
+    }
+}
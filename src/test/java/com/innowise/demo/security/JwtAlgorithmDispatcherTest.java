@@ -0,0 +1,138 @@
+package com.innowise.demo.security;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Set;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtAlgorithmDispatcherTest {
+
+    private static final String SECRET = "mySecretKeyForJWTGenerationInAuthenticationService2025";
+
+    private SecretKey secretKey;
+    private RSAKey rsaKey;
+    private JwtAlgorithmDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        secretKey = new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        rsaKey = new RSAKeyGenerator(2048).keyID("kc-1").generate();
+
+        dispatcher = JwtAlgorithmDispatcher.builder()
+                .macKey(secretKey, JWSAlgorithm.HS256)
+                .jwkSource(new ImmutableJWKSet<>(new JWKSet(rsaKey.toPublicJWK())), Set.of(JWSAlgorithm.RS256))
+                .build();
+    }
+
+    private static JWTClaimsSet claims(String subject, String issuer) {
+        return new JWTClaimsSet.Builder()
+                .subject(subject)
+                .issuer(issuer)
+                .claim("role", "USER")
+                .issueTime(new Date())
+                .expirationTime(Date.from(Instant.now().plusSeconds(3600)))
+                .build();
+    }
+
+    private String hmacToken(String subject) throws Exception {
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims(subject, null));
+        jwt.sign(new MACSigner(secretKey));
+        return jwt.serialize();
+    }
+
+    private String rsaToken(String subject, String issuer) throws Exception {
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("kc-1").build(),
+                claims(subject, issuer));
+        jwt.sign(new RSASSASigner(rsaKey));
+        return jwt.serialize();
+    }
+
+    @Test
+    @DisplayName("HMAC токен authentication-service проверяется общим секретом")
+    void decode_HmacToken_ShouldUseMacVerifier() throws Exception {
+        // when
+        Jwt jwt = dispatcher.decode(hmacToken("user@example.com"));
+
+        // then
+        assertEquals("user@example.com", jwt.getSubject());
+        assertEquals("HS256", jwt.getHeaders().get("alg"));
+        assertEquals("USER", jwt.getClaimAsString("role"));
+    }
+
+    @Test
+    @DisplayName("RSA токен Keycloak проверяется ключом из JWK без попытки HMAC")
+    void decode_RsaToken_ShouldUseJwkVerifier() throws Exception {
+        // when
+        Jwt jwt = dispatcher.decode(rsaToken("kc@example.com", "http://keycloak/realms/app"));
+
+        // then
+        assertEquals("kc@example.com", jwt.getSubject());
+        assertEquals("kc-1", jwt.getHeaders().get("kid"));
+    }
+
+    @Test
+    @DisplayName("Неподдерживаемый алгоритм отклоняется")
+    void decode_UnsupportedAlgorithm_ShouldThrow() throws Exception {
+        // given
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS512), claims("user@example.com", null));
+        jwt.sign(new MACSigner(SECRET.repeat(2).getBytes(StandardCharsets.UTF_8)));
+
+        // when & then
+        assertThrows(BadJwtException.class, () -> dispatcher.decode(jwt.serialize()));
+    }
+
+    @Test
+    @DisplayName("Неверная подпись отклоняется")
+    void decode_TamperedToken_ShouldThrow() throws Exception {
+        // given
+        String token = hmacToken("user@example.com");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        // when & then
+        assertThrows(BadJwtException.class, () -> dispatcher.decode(tampered));
+    }
+
+    @Test
+    @DisplayName("Валидатор получает уже разобранные claims (проверка issuer)")
+    void decode_IssuerMismatch_ShouldFailValidation() throws Exception {
+        // given
+        JwtAlgorithmDispatcher withIssuerCheck = JwtAlgorithmDispatcher.builder()
+                .jwkSource(new ImmutableJWKSet<>(new JWKSet(rsaKey.toPublicJWK())), Set.of(JWSAlgorithm.RS256))
+                .validator(jwt -> "http://keycloak/realms/app".equals(String.valueOf(jwt.getIssuer()))
+                        ? OAuth2TokenValidatorResult.success()
+                        : OAuth2TokenValidatorResult.failure(new OAuth2Error("invalid_token", "bad iss", null)))
+                .build();
+        String token = rsaToken("kc@example.com", "http://evil/realms/app");
+
+        // when & then
+        JwtValidationException exception = assertThrows(JwtValidationException.class,
+                () -> withIssuerCheck.decode(token));
+        assertEquals("bad iss", exception.getErrors().iterator().next().getDescription());
+    }
+}
@@ -0,0 +1,111 @@
+package com.innowise.demo.security;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.innowise.demo.repository.UserRepository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserIdResolverTest {
+
+    private UserRepository userRepository;
+    private UserIdResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        resolver = new UserIdResolver(userRepository, 100, Duration.ofMinutes(10));
+        when(userRepository.findIdByEmail("test@example.com")).thenReturn(Optional.of(1L));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static AuthenticatedUser user() {
+        return user("test@example.com");
+    }
+
+    private static AuthenticatedUser user(String subject) {
+        Jwt.Builder builder = Jwt.withTokenValue("mock-token")
+                .header("alg", "HS256")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600));
+        if (subject != null) {
+            builder.subject(subject);
+        } else {
+            builder.claim("email", "test@example.com");
+        }
+        return AuthenticatedUser.of(builder.build(), List.of(new SimpleGrantedAuthority("ROLE_USER")));
+    }
+
+    @Test
+    @DisplayName("sub в другом регистре не получает id владельца")
+    void resolve_SubjectWithDifferentCase_ReturnsNull() {
+        // given
+        resolver.resolve(user());
+
+        // when / then
+        assertNull(resolver.resolve(user("Test@Example.com")));
+        assertNull(resolver.resolveCached(user("Test@Example.com")));
+    }
+
+    @Test
+    @DisplayName("Токен без sub не получает id по claim email")
+    void resolve_WithoutSubject_ReturnsNullWithoutQuery() {
+        // when / then
+        assertNull(resolver.resolve(user(null)));
+        assertNull(resolver.resolveCached(user(null)));
+        verify(userRepository, never()).findIdByEmail(any());
+    }
+
+    @Test
+    @DisplayName("Вне транзакции id сбрасывается сразу")
+    void evict_WithoutTransaction_ShouldInvalidateImmediately() {
+        // given
+        resolver.resolve(user());
+
+        // when
+        resolver.evict("test@example.com");
+
+        // then
+        assertNull(resolver.resolveCached(user()));
+    }
+
+    @Test
+    @DisplayName("В транзакции id сбрасывается только после фиксации")
+    void evict_InTransaction_ShouldInvalidateAfterCommit() {
+        // given
+        resolver.resolve(user());
+        TransactionSynchronizationManager.initSynchronization();
+
+        // when
+        resolver.evict("test@example.com");
+
+        // then
+        assertEquals(1L, resolver.resolveCached(user()));
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertNull(resolver.resolveCached(user()));
+    }
+}
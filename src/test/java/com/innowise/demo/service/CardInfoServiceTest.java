@@ -2,9 +2,15 @@ package com.innowise.demo.service;
 
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import jakarta.persistence.EntityManager;
+
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -21,6 +27,9 @@ import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import com.innowise.demo.cache.RedisBulkCache;
+import com.innowise.demo.cache.TransactionalCacheWriter;
+import com.innowise.demo.dto.CardBatchResponse;
 import com.innowise.demo.dto.CardInfoDto;
 import com.innowise.demo.exception.CardInfoNotFoundException;
 import com.innowise.demo.exception.UserNotFoundException;
@@ -29,12 +38,15 @@ import com.innowise.demo.model.CardInfo;
 import com.innowise.demo.model.User;
 import com.innowise.demo.repository.CardInfoRepository;
 import com.innowise.demo.repository.UserRepository;
+import com.innowise.demo.security.AuthenticatedUser;
+import com.innowise.demo.security.UserIdResolver;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -58,6 +70,18 @@ class CardInfoServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private UserIdResolver userIdResolver;
+
+    @Mock
+    private RedisBulkCache redisBulkCache;
+
+    @Mock
+    private TransactionalCacheWriter cacheWriter;
+
+    @Mock
+    private EntityManager entityManager;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -80,6 +104,9 @@ class CardInfoServiceTest {
         cardDto.setExpirationDate(LocalDate.of(2030, 1, 1));
         cardDto.setUserId(user.getId());
 
+        // Текущий пользователь (USER) - владелец user с id = 1
+        when(userIdResolver.resolve(any())).thenReturn(1L);
+        when(userIdResolver.isOwner(any(), eq(1L))).thenReturn(true);
     }
 
     private JwtAuthenticationToken createMockAuthentication(String email, String role) {
@@ -118,8 +145,8 @@ class CardInfoServiceTest {
         mockSecurityContext(authentication);
 
         //when
-        // Когда кто-то вызовет cardInfoRepository.findById(1L), верни Optional с cardInfo
-        when(cardInfoRepository.findById(1L)).thenReturn(Optional.of(cardInfo));
+        // Когда кто-то вызовет cardInfoRepository.findByIdAndUserId(1L, 1L), верни Optional с cardInfo
+        when(cardInfoRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(cardInfo));
         // Когда кто-то вызовет cardInfoMapper.toDto(cardInfo), верни dto
         when(cardInfoMapper.toDto(cardInfo)).thenReturn(dto);
 
@@ -134,6 +161,8 @@ class CardInfoServiceTest {
     @Test
     void getCardInfoById_NotFound_ThrowsException() {
         // given & when
+        // ADMIN ищет карту по id без фильтра по владельцу
+        mockSecurityContext(createMockAuthentication("admin@example.com", "ADMIN"));
         // Когда кто-то вызовет cardInfoRepository.findById(1L), верни пустой Optional
         // Это имитирует ситуацию, когда карты с таким ID не существует в базе данных
         when(cardInfoRepository.findById(1L)).thenReturn(Optional.empty());
@@ -152,9 +181,9 @@ class CardInfoServiceTest {
         JwtAuthenticationToken authentication = createMockAuthentication("test@example.com", "USER");
         mockSecurityContext(authentication);
 
-        // Когда кто-то вызовет userRepository.findById(1L), верни Optional с user
-        // (это нужно для проверки существования пользователя перед сохранением карты)
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        // USER создает карту для себя: id владельца уже известен, пользователь не загружается,
+        // а подставляется ссылка (getReferenceById) только для user_id
+        when(userRepository.getReferenceById(1L)).thenReturn(user);
         // Когда кто-то вызовет cardInfoMapper.toEntity(cardDto), верни card
         // (преобразование DTO в сущность для сохранения в БД)
         when(cardInfoMapper.toEntity(cardDto)).thenReturn(card);
@@ -173,12 +202,15 @@ class CardInfoServiceTest {
         assertNotNull(result); // Проверка: что результат не null
         assertEquals(cardDto.getNumber(), result.getNumber()); // Проверка: что номер карты совпадает
         verify(cardInfoRepository, times(1)).save(card); // Проверка: что метод save был вызван ровно 1 раз
+        verify(userRepository, never()).findById(any()); // Проверка: что владелец повторно не загружался
     }
 
     @DisplayName("saveCardInfo_Negative")
     @Test
     void save_ShouldThrow_WhenUserNotFound() {
         // given & when
+        // ADMIN может создать карту для любого пользователя, поэтому пользователь загружается по id
+        mockSecurityContext(createMockAuthentication("admin@example.com", "ADMIN"));
         // Когда кто-то вызовет userRepository.findById(1L), верни пустой Optional
         // Это имитирует ситуацию, когда пользователя с таким ID не существует в базе данных
         when(userRepository.findById(1L)).thenReturn(Optional.empty());
@@ -189,6 +221,22 @@ class CardInfoServiceTest {
         assertThrows(UserNotFoundException.class, () -> cardInfoService.save(cardDto));
     }
 
+    @Test
+    void getCardInfoById_ShouldThrow_WhenCardBelongsToAnotherUser() {
+        // given
+        JwtAuthenticationToken authentication = createMockAuthentication("test@example.com", "USER");
+        mockSecurityContext(authentication);
+
+        // Для USER карта ищется одним запросом по id карты и id владельца: чужая карта не находится
+        when(cardInfoRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.empty());
+
+        // when & then
+        // Чужая карта неотличима от несуществующей (404), пользователь и карта по id отдельно не загружаются
+        assertThrows(CardInfoNotFoundException.class, () -> cardInfoService.getCardInfoById(1L));
+        verify(cardInfoRepository, never()).findById(any());
+        verify(userRepository, never()).findById(any());
+    }
+
     // ----------------- getCardInfoById -----------------
     @DisplayName("getCardInfo_Positive")
     @Test
@@ -198,9 +246,9 @@ class CardInfoServiceTest {
         JwtAuthenticationToken authentication = createMockAuthentication("test@example.com", "USER");
         mockSecurityContext(authentication);
 
-        // Когда кто-то вызовет cardInfoRepository.findById(1L), верни Optional с card
+        // Когда кто-то вызовет cardInfoRepository.findByIdAndUserId(1L, 1L), верни Optional с card
         // (это объект, созданный в setUp() с данными карты)
-        when(cardInfoRepository.findById(1L)).thenReturn(Optional.of(card));
+        when(cardInfoRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(card));
         // Когда кто-то вызовет cardInfoMapper.toDto(card), верни cardDto
         // (преобразование сущности в DTO для возврата клиенту)
         when(cardInfoMapper.toDto(card)).thenReturn(cardDto);
@@ -275,9 +323,9 @@ class CardInfoServiceTest {
         JwtAuthenticationToken authentication = createMockAuthentication("test@example.com", "USER");
         mockSecurityContext(authentication);
 
-        // Когда кто-то вызовет cardInfoRepository.findById(1L), верни Optional с card
+        // Когда кто-то вызовет cardInfoRepository.findByIdAndUserId(1L, 1L), верни Optional с card
         // (это нужно для получения существующей карты перед обновлением)
-        when(cardInfoRepository.findById(1L)).thenReturn(Optional.of(card));
+        when(cardInfoRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(card));
         // Когда кто-то вызовет userRepository.findById(1L), верни Optional с user
         // (это нужно для проверки существования пользователя)
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
@@ -327,17 +375,17 @@ class CardInfoServiceTest {
         JwtAuthenticationToken authentication = createMockAuthentication("test@example.com", "USER");
         mockSecurityContext(authentication);
 
-        // Когда кто-то вызовет cardInfoRepository.findById(1L), верни Optional с card
+        // Когда кто-то вызовет cardInfoRepository.findByIdAndUserId(1L, 1L), верни Optional с card
         // (это нужно для проверки существования карты перед удалением)
-        when(cardInfoRepository.findById(1L)).thenReturn(Optional.of(card));
+        when(cardInfoRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(card));
 
         //when
         // Вызываем тестируемый метод удаления карты
         cardInfoService.deleteCardInfo(1L);
 
         // then
-        // Проверка: что метод findById был вызван для получения карты
-        verify(cardInfoRepository, times(1)).findById(1L);
+        // Проверка: что карта загружена одним запросом с фильтром по владельцу
+        verify(cardInfoRepository, times(1)).findByIdAndUserId(1L, 1L);
         // Проверка: что метод delete был вызван ровно 1 раз с объектом card
         verify(cardInfoRepository, times(1)).delete(card);
     }
@@ -346,6 +394,8 @@ class CardInfoServiceTest {
     @Test
     void deleteCardInfo_ShouldThrow_WhenNotFound() {
         // given & when
+        // ADMIN ищет карту по id без фильтра по владельцу
+        mockSecurityContext(createMockAuthentication("admin@example.com", "ADMIN"));
         // Когда кто-то вызовет cardInfoRepository.findById(1L), верни пустой Optional
         // Это имитирует ситуацию, когда карты с таким ID не существует в базе данных
         when(cardInfoRepository.findById(1L)).thenReturn(Optional.empty());
@@ -417,8 +467,8 @@ class CardInfoServiceTest {
         JwtAuthenticationToken authentication = createMockAuthentication("test@example.com", "USER");
         mockSecurityContext(authentication);
 
-        // Когда кто-то вызовет cardInfoRepository.findById(1L), верни Optional с card
-        when(cardInfoRepository.findById(1L)).thenReturn(Optional.of(card));
+        // Когда кто-то вызовет cardInfoRepository.findByIdAndUserId(1L, 1L), верни Optional с card
+        when(cardInfoRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(card));
         // Мок save возвращает объект, который был передан
         when(cardInfoRepository.save(any(CardInfo.class))).thenAnswer(invocation -> invocation.getArgument(0));
         // Маппер формирует DTO из текущего состояния объекта CardInfo
@@ -461,8 +511,8 @@ class CardInfoServiceTest {
         JwtAuthenticationToken authentication = createMockAuthentication("test@example.com", "USER");
         mockSecurityContext(authentication);
 
-        // Когда кто-то вызовет cardInfoRepository.findById(1L), верни Optional с card
-        when(cardInfoRepository.findById(1L)).thenReturn(Optional.of(card));
+        // Когда кто-то вызовет cardInfoRepository.findByIdAndUserId(1L, 1L), верни Optional с card
+        when(cardInfoRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(card));
         // Мок save возвращает объект, который был передан
         when(cardInfoRepository.save(any(CardInfo.class))).thenAnswer(invocation -> invocation.getArgument(0));
         // Маппер формирует DTO из текущего состояния объекта CardInfo
@@ -497,4 +547,69 @@ class CardInfoServiceTest {
         verify(userRepository, never()).findById(any());
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("getCardInfosBatch - USER получает только свои карты, промахи кэша читаются одним запросом")
+    void getCardInfosBatch_User_ShouldReturnOwnCardsOnly() {
+        // given
+        mockSecurityContext(createMockAuthentication("test@example.com", "USER"));
+        User otherUser = new User();
+        otherUser.setId(2L);
+        CardInfo otherCard = new CardInfo();
+        otherCard.setId(2L);
+        otherCard.setUser(otherUser);
+        CardInfoDto otherDto = new CardInfoDto();
+        otherDto.setId(2L);
+        otherDto.setUserId(2L);
+
+        // Карта 1 (своя) в кэше, карта 2 (чужая) в БД, карты 3 нет
+        when(redisBulkCache.getAll(eq("cardCache"), any(), eq(CardInfoDto.class))).thenReturn(Map.of(1L, cardDto));
+        when(cardInfoRepository.findAllById(List.of(2L, 3L))).thenReturn(List.of(otherCard));
+        when(cardInfoMapper.toDto(otherCard)).thenReturn(otherDto);
+
+        // when
+        CardBatchResponse response = cardInfoService.getCardInfosBatch(List.of(1L, 2L, 3L));
+
+        // then
+        assertEquals(List.of(cardDto), response.getCards());
+        assertEquals(List.of(2L, 3L), response.getMissingIds());
+        verify(redisBulkCache).putAll("cardCache", Map.of(2L, otherDto));
+        verify(cardInfoRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("save - карта записывается в cardCache, записи владельца удаляются после фиксации")
+    void save_ShouldWriteCardAndEvictOwnerAfterCommit() {
+        // given
+        mockSecurityContext(createMockAuthentication("test@example.com", "USER"));
+        when(userRepository.getReferenceById(1L)).thenReturn(user);
+        when(cardInfoMapper.toEntity(cardDto)).thenReturn(card);
+        when(cardInfoRepository.save(card)).thenReturn(card);
+        when(cardInfoMapper.toDto(card)).thenReturn(cardDto);
+
+        // when
+        cardInfoService.save(cardDto);
+
+        // then
+        verify(cacheWriter).putAfterCommit(Map.of("cardCache", Map.of(1L, cardDto)));
+        verify(cacheWriter).evictAfterCommit("users", List.of(1L));
+        verify(cacheWriter).evictAfterCommit("users_by_email", List.of("test@example.com"));
+        verify(cacheWriter).clearAfterCommit("users_all");
+    }
+
+    @Test
+    @DisplayName("streamCardInfos - USER получает только свои карты, курсором по email")
+    void streamCardInfos_AsUser_ShouldStreamOwnCards() {
+        // given
+        AuthenticatedUser currentUser = AuthenticatedUser.from(createMockAuthentication("test@example.com", "USER"));
+        when(cardInfoRepository.streamAllByUserEmailIgnoreCase("test@example.com")).thenReturn(Stream.of(card));
+        when(cardInfoMapper.toDto(card)).thenReturn(cardDto);
+        List<CardInfoDto> streamed = new ArrayList<>();
+
+        // when
+        cardInfoService.streamCardInfos(currentUser, streamed::add);
+
+        // then
+        assertEquals(List.of(cardDto), streamed);
+        verify(cardInfoRepository, never()).streamAll();
+    }
+}
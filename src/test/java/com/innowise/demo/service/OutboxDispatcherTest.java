@@ -0,0 +1,169 @@
+package com.innowise.demo.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.innowise.demo.client.AuthServiceBatchingClient;
+import com.innowise.demo.model.OutboxEvent;
+import com.innowise.demo.model.OutboxEventType;
+import com.innowise.demo.model.OutboxStatus;
+import com.innowise.demo.repository.OutboxEventRepository;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxDispatcherTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private AuthServiceBatchingClient batchingClient;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(batchingClient.deleteUser(anyString())).thenReturn(CompletableFuture.completedFuture(null));
+
+        dispatcher = new OutboxDispatcher(outboxEventRepository, batchingClient, transactionManager,
+                10, MAX_ATTEMPTS, Duration.ofSeconds(5), Duration.ofMinutes(1),
+                Duration.ofMinutes(2), Duration.ofDays(7));
+    }
+
+    private static OutboxEvent event(long id, String email, int attempts) {
+        OutboxEvent event = OutboxEvent.pending(OutboxEventType.USER_DELETED, email, Instant.now());
+        event.setId(id);
+        event.setAttempts(attempts);
+        return event;
+    }
+
+    @Test
+    @DisplayName("Пачка отправляется одним пакетом, доставленные события помечаются SENT одним запросом")
+    void dispatchBatch_ShouldMarkDeliveredEventsSent() {
+        // given
+        when(outboxEventRepository.lockDueEvents(any(), eq(10)))
+                .thenReturn(List.of(event(1L, "a@example.com", 0), event(2L, "b@example.com", 0)));
+
+        // when
+        int processed = dispatcher.dispatchBatch();
+
+        // then
+        assertEquals(2, processed);
+        verify(outboxEventRepository).claim(eq(List.of(1L, 2L)), any());
+        verify(batchingClient).deleteUser("a@example.com");
+        verify(batchingClient).deleteUser("b@example.com");
+        verify(batchingClient).flush();
+        verify(outboxEventRepository).markSent(eq(List.of(1L, 2L)), any());
+        verify(outboxEventRepository, never()).markAttemptFailed(any(), any(), any(), anyString());
+    }
+
+    @Test
+    @DisplayName("Ошибка доставки откладывает событие с задержкой, остальные события доставляются")
+    void dispatchBatch_ShouldRescheduleFailedEvent() {
+        // given
+        when(outboxEventRepository.lockDueEvents(any(), anyInt()))
+                .thenReturn(List.of(event(1L, "down@example.com", 0), event(2L, "ok@example.com", 0)));
+        when(batchingClient.deleteUser("down@example.com"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("connection refused")));
+        Instant before = Instant.now();
+
+        // when
+        dispatcher.dispatchBatch();
+
+        // then
+        verify(outboxEventRepository).markSent(eq(List.of(2L)), any());
+        verify(outboxEventRepository).markAttemptFailed(eq(1L), eq(OutboxStatus.PENDING),
+                argThat(next -> !next.isBefore(before.plusSeconds(5))), eq("connection refused"));
+    }
+
+    @Test
+    @DisplayName("После исчерпания попыток событие переводится в FAILED")
+    void dispatchBatch_ShouldMarkFailed_WhenAttemptsExhausted() {
+        // given
+        when(outboxEventRepository.lockDueEvents(any(), anyInt()))
+                .thenReturn(List.of(event(1L, "down@example.com", MAX_ATTEMPTS - 1)));
+        when(batchingClient.deleteUser("down@example.com"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("503")));
+
+        // when
+        dispatcher.dispatchBatch();
+
+        // then
+        verify(outboxEventRepository).markAttemptFailed(eq(1L), eq(OutboxStatus.FAILED), any(), eq("503"));
+        verify(outboxEventRepository, never()).markSent(any(), any());
+    }
+
+    @Test
+    @DisplayName("Разомкнутый circuit breaker откладывает пачку без расходования попыток")
+    void dispatchBatch_ShouldDeferBatch_WhenCircuitOpen() {
+        // given
+        when(outboxEventRepository.lockDueEvents(any(), anyInt()))
+                .thenReturn(List.of(event(1L, "a@example.com", 0), event(2L, "b@example.com", 0)));
+        CallNotPermittedException rejected = CallNotPermittedException.createCallNotPermittedException(
+                CircuitBreaker.ofDefaults("auth-sync-batch"));
+        when(batchingClient.deleteUser(anyString())).thenReturn(CompletableFuture.failedFuture(rejected));
+
+        // when
+        int processed = dispatcher.dispatchBatch();
+
+        // then
+        assertEquals(0, processed);
+        verify(outboxEventRepository).defer(eq(1L), any());
+        verify(outboxEventRepository).defer(eq(2L), any());
+        verify(outboxEventRepository, never()).markAttemptFailed(any(), any(), any(), anyString());
+        verify(outboxEventRepository, never()).markSent(any(), any());
+    }
+
+    @Test
+    @DisplayName("Пустая очередь - ни захвата, ни обновлений")
+    void dispatchBatch_ShouldDoNothing_WhenQueueEmpty() {
+        // given
+        when(outboxEventRepository.lockDueEvents(any(), anyInt())).thenReturn(List.of());
+
+        // when
+        int processed = dispatcher.dispatchBatch();
+
+        // then
+        assertEquals(0, processed);
+        verify(outboxEventRepository, never()).claim(any(), any());
+        verify(batchingClient, never()).deleteUser(anyString());
+    }
+
+    @Test
+    @DisplayName("Задержка растет экспоненциально и ограничена max-backoff")
+    void backoff_ShouldGrowExponentiallyUpToMax() {
+        assertEquals(Duration.ofSeconds(5), dispatcher.backoff(1));
+        assertEquals(Duration.ofSeconds(10), dispatcher.backoff(2));
+        assertEquals(Duration.ofSeconds(40), dispatcher.backoff(4));
+        assertEquals(Duration.ofMinutes(1), dispatcher.backoff(10));
+        assertEquals(Duration.ofMinutes(1), dispatcher.backoff(100));
+    }
+}
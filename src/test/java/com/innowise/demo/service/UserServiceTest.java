@@ -3,7 +3,11 @@ package com.innowise.demo.service;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import jakarta.persistence.EntityManager;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -15,21 +19,35 @@ import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import com.innowise.demo.cache.RedisBulkCache;
+import com.innowise.demo.cache.TransactionalCacheWriter;
+import com.innowise.demo.cache.UserPageCache;
 import com.innowise.demo.dto.PagedUserResponse;
 import com.innowise.demo.dto.UpdateUserDto;
+import com.innowise.demo.dto.UserBatchRequest;
+import com.innowise.demo.dto.UserBatchResponse;
 import com.innowise.demo.dto.UserDto;
+import com.innowise.demo.dto.UserIdPage;
 import com.innowise.demo.exception.UserNotFoundException;
 import com.innowise.demo.mapper.UserMapper;
+import com.innowise.demo.model.OutboxEventType;
 import com.innowise.demo.model.User;
 import com.innowise.demo.repository.CardInfoRepository;
 import com.innowise.demo.repository.UserRepository;
-import com.innowise.demo.client.AuthServiceClient;
+import com.innowise.demo.repository.UserSummary;
+import com.innowise.demo.security.AuthenticatedUser;
+import com.innowise.demo.security.UserIdResolver;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -51,7 +69,22 @@ class UserServiceTest {
     private CacheManager cacheManager;
 
     @Mock
-    private AuthServiceClient authServiceClient;
+    private OutboxService outboxService;
+
+    @Mock
+    private UserIdResolver userIdResolver;
+
+    @Mock
+    private RedisBulkCache redisBulkCache;
+
+    @Mock
+    private UserPageCache userPageCache;
+
+    @Mock
+    private TransactionalCacheWriter cacheWriter;
+
+    @Mock
+    private EntityManager entityManager;
 
     private User user;
     private UserDto userDto;
@@ -116,6 +149,23 @@ class UserServiceTest {
         verify(userRepository, times(1)).findById(userId);
     }
 
+    @DisplayName("findUserSummaryById - пользователь читается проекцией без карт")
+    @Test
+    void findUserSummaryById_UserExists_ReturnsDtoFromProjection() {
+        // given
+        UserSummary summary = mock(UserSummary.class);
+        when(userRepository.findSummaryById(1L)).thenReturn(Optional.of(summary));
+        when(userMapper.toDto(summary)).thenReturn(userDto);
+
+        // when
+        UserDto result = userService.findUserSummaryById(1L);
+
+        // then
+        assertEquals(1L, result.getId());
+        // Сущность (и ее коллекция карт) не загружается
+        verify(userRepository, never()).findById(any());
+    }
+
     // ----------------- findByEmailUser -----------------
 
     @DisplayName("getUserByEmailNamed_Test_Positive")
@@ -394,8 +444,10 @@ class UserServiceTest {
         // then
         // Проверка: что метод deleteById был вызван ровно 1 раз с аргументом 1L
         verify(userRepository, times(1)).deleteById(1L);
-        // Проверка: что метод deleteUser был вызван в authServiceClient для синхронизации удаления
-        verify(authServiceClient, times(1)).deleteUser(user.getEmail());
+        // Проверка: что событие синхронизации удаления записано в outbox (HTTP вызов выполняется в фоне)
+        verify(outboxService, times(1)).enqueue(OutboxEventType.USER_DELETED, user.getEmail());
+        // Проверка: что соответствие email -> id сброшено из локального кэша
+        verify(userIdResolver, times(1)).evict(user.getEmail());
     }
 
     @DisplayName("deleteUser_Negative")
@@ -535,6 +587,61 @@ class UserServiceTest {
 
     // ----------------- findAllUsers edge cases -----------------
 
+    @DisplayName("findAllUsers - пользователи страницы кэшируются по id и email одним pipeline")
+    @Test
+    void findAllUsers_ShouldPopulatePerUserCacheEntries() {
+        // given
+        when(userRepository.findAll(PageRequest.of(0, 5)))
+                .thenReturn(new PageImpl<>(List.of(user), PageRequest.of(0, 5), 1));
+        when(userMapper.toDto(user)).thenReturn(userDto);
+
+        // when
+        userService.findAllUsers(0, 5);
+
+        // then
+        verify(redisBulkCache).putAll(Map.of(
+                "users", Map.of(1L, userDto),
+                "users_by_email", Map.of("masha@gmail.com", userDto)));
+    }
+
+    @DisplayName("findAllUsers - страница из списка id собирается из кэша users без запроса страницы к БД")
+    @Test
+    void findAllUsers_PageIdsMode_ShouldResolvePageFromUserCache() {
+        // given
+        when(userPageCache.isEnabled()).thenReturn(true);
+        when(userPageCache.get(0, 5)).thenReturn(Optional.of(new UserIdPage(List.of(1L), 0, 5, 1, 1)));
+        when(redisBulkCache.getAll(eq("users"), any(), eq(UserDto.class))).thenReturn(Map.of(1L, userDto));
+
+        // when
+        PagedUserResponse response = userService.findAllUsers(0, 5);
+
+        // then
+        assertEquals(List.of(userDto), response.getContent());
+        assertEquals(1L, response.getTotalElements());
+        verify(userRepository, never()).findAll(any(PageRequest.class));
+        verify(userRepository, never()).findAllWithCardsByIdIn(any());
+    }
+
+    @DisplayName("findAllUsers - если пользователя из списка id уже нет, страница перечитывается из БД")
+    @Test
+    void findAllUsers_PageIdsMode_ShouldReloadStalePage() {
+        // given
+        when(userPageCache.isEnabled()).thenReturn(true);
+        when(userPageCache.get(0, 5)).thenReturn(Optional.of(new UserIdPage(List.of(1L, 2L), 0, 5, 2, 1)));
+        when(redisBulkCache.getAll(eq("users"), any(), eq(UserDto.class))).thenReturn(Map.of(1L, userDto));
+        when(userRepository.findAllWithCardsByIdIn(List.of(2L))).thenReturn(List.of());
+        when(userRepository.findAll(PageRequest.of(0, 5)))
+                .thenReturn(new PageImpl<>(List.of(user), PageRequest.of(0, 5), 1));
+        when(userMapper.toDto(user)).thenReturn(userDto);
+
+        // when
+        PagedUserResponse response = userService.findAllUsers(0, 5);
+
+        // then
+        assertEquals(1L, response.getTotalElements());
+        verify(userPageCache).put(response);
+    }
+
     @DisplayName("findAllUsers_EmptyPage_ShouldReturnEmpty")
     @Test
     void findAllUsers_EmptyPage_ShouldReturnEmpty() {
@@ -555,4 +662,102 @@ class UserServiceTest {
         assertEquals(0L, response.getTotalElements()); // Проверка: что всего элементов 0
         verify(userRepository, times(1)).findAll(PageRequest.of(0, 5)); // Проверка: что метод был вызван ровно 1 раз
     }
-}
\ No newline at end of file
+
+    // ----------------- findUsersBatch -----------------
+
+    @DisplayName("findUsersBatch - попадания из кэша, промахи одним IN-запросом, чужие пользователи в missing")
+    @Test
+    void findUsersBatch_ShouldCombineCacheAndSingleQuery() {
+        // given
+        AuthenticatedUser currentUser = AuthenticatedUser.of(
+                Jwt.withTokenValue("mock-token").header("alg", "HS256").subject("masha@gmail.com").build(),
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        User other = new User();
+        other.setId(2L);
+        other.setEmail("other@gmail.com");
+        UserDto otherDto = new UserDto();
+        otherDto.setId(2L);
+        otherDto.setEmail("other@gmail.com");
+
+        // id 1 есть в кэше, id 2 и 3 - промахи; id 3 нет в БД
+        when(redisBulkCache.getAll(eq("users"), any(), eq(UserDto.class))).thenReturn(Map.of(1L, userDto));
+        when(userRepository.findAllWithCardsByIdIn(List.of(2L, 3L))).thenReturn(List.of(other));
+        when(userMapper.toDto(other)).thenReturn(otherDto);
+        when(redisBulkCache.getAll(eq("users_by_email"), any(), eq(UserDto.class))).thenReturn(Map.of());
+        when(userRepository.findAllWithCardsByEmailIn(List.of("masha@gmail.com"))).thenReturn(List.of(user));
+        when(userMapper.toDto(user)).thenReturn(userDto);
+
+        // when
+        UserBatchResponse response = userService.findUsersBatch(
+                new UserBatchRequest(List.of(1L, 2L, 3L, 1L), List.of("masha@gmail.com")), currentUser);
+
+        // then
+        // Пользователь, запрошенный и по id, и по email, возвращается один раз
+        assertEquals(List.of(userDto), response.getUsers());
+        // Чужой пользователь для USER неотличим от несуществующего
+        assertEquals(List.of(2L, 3L), response.getMissingIds());
+        assertTrue(response.getMissingEmails().isEmpty());
+        // Загруженные из БД записи возвращаются в кэши по id и по email одним вызовом
+        verify(redisBulkCache).putAll(Map.of(
+                "users", Map.of(2L, otherDto),
+                "users_by_email", Map.of("other@gmail.com", otherDto)));
+        verify(userRepository, never()).findById(any());
+    }
+
+    // ----------------- write-through -----------------
+
+    @DisplayName("updateCurrentUser - обновленный пользователь записывается во все кэши после фиксации")
+    @Test
+    void updateCurrentUser_ShouldWriteThroughAllUserCaches() {
+        // given
+        when(userRepository.findByEmailNativeQuery("masha@gmail.com")).thenReturn(Optional.of(user));
+        when(userRepository.save(any(User.class))).thenReturn(user);
+        when(userMapper.toDto(user)).thenReturn(userDto);
+        UpdateUserDto updateDto = new UpdateUserDto();
+        updateDto.setFirstName("Masha");
+
+        // when
+        userService.updateCurrentUser("masha@gmail.com", updateDto);
+
+        // then
+        // Запись users_summary - тот же пользователь без карт
+        UserDto summary = new UserDto();
+        summary.setId(1L);
+        summary.setFirstName("Masha");
+        summary.setLastName("Raspberry");
+        summary.setEmail("masha@gmail.com");
+        summary.setBirthDate(LocalDate.of(1990, 1, 1));
+        verify(cacheWriter).putAfterCommit(Map.of(
+                "users", Map.of(1L, userDto),
+                "users_by_email", Map.of("masha@gmail.com", userDto),
+                "users_summary", Map.of("id_1", summary, "email_masha@gmail.com", summary),
+                "cardCache", Map.of()));
+    }
+
+    // ----------------- streamAllUsers -----------------
+
+    @DisplayName("streamAllUsers - пользователи порции загружаются одним запросом и передаются по возрастанию id")
+    @Test
+    void streamAllUsers_ShouldLoadChunkWithSingleQuery() {
+        // given
+        User second = new User();
+        second.setId(2L);
+        UserDto secondDto = new UserDto();
+        secondDto.setId(2L);
+        when(userRepository.streamAllIds()).thenReturn(Stream.of(1L, 2L));
+        // IN-запрос не гарантирует порядок строк
+        when(userRepository.findAllWithCardsByIdIn(List.of(1L, 2L))).thenReturn(List.of(second, user));
+        when(userMapper.toDto(user)).thenReturn(userDto);
+        when(userMapper.toDto(second)).thenReturn(secondDto);
+        List<UserDto> streamed = new ArrayList<>();
+
+        // when
+        userService.streamAllUsers(streamed::add);
+
+        // then
+        assertEquals(List.of(userDto, secondDto), streamed);
+        verify(userRepository, times(1)).findAllWithCardsByIdIn(any());
+        // Контекст персистентности очищается после порции
+        verify(entityManager).clear();
+    }
+}